@@ -28,15 +28,18 @@ import org.pmk.demo.trade.validations.TradeVersionValidator;
 public class App 
 {
 	public static final long TRADE_EXPIRY_SCHEDULER_FIRST_START_SECONDS = 3;
-	public static final long TRADE_EXPIRY_SCHEDULER_RATE_AFTER_FIRST = 10;
+	public static final long TRADE_EXPIRY_SCHEDULER_MIN_DELAY_SECONDS = 1;
+	public static final long TRADE_EXPIRY_SCHEDULER_MAX_DELAY_SECONDS = 10;
 	public static final String DATE_FORMAT = "dd/MM/yyyy";
 	
 	private static TradeService service = new TradeService(new InMemoryTradeDao(),  new TradeMaturityDateValidator(new TradeVersionValidator(null)));
     public static void main( String[] args ) throws IOException
     {		
     	System.out.println("Trade expiry scheduler will run in " + TRADE_EXPIRY_SCHEDULER_FIRST_START_SECONDS 
-    			+ " second and then every " + TRADE_EXPIRY_SCHEDULER_RATE_AFTER_FIRST + " seconds");
-    	service.startTradeExpiryScheduler(TRADE_EXPIRY_SCHEDULER_FIRST_START_SECONDS, TRADE_EXPIRY_SCHEDULER_RATE_AFTER_FIRST);
+    			+ " second and then every " + TRADE_EXPIRY_SCHEDULER_MIN_DELAY_SECONDS + " to " + TRADE_EXPIRY_SCHEDULER_MAX_DELAY_SECONDS
+    			+ " seconds depending on upcoming maturities");
+    	service.startTradeExpiryScheduler(TimeUnit.SECONDS.toMillis(TRADE_EXPIRY_SCHEDULER_FIRST_START_SECONDS), 
+    			TimeUnit.SECONDS.toMillis(TRADE_EXPIRY_SCHEDULER_MIN_DELAY_SECONDS), TimeUnit.SECONDS.toMillis(TRADE_EXPIRY_SCHEDULER_MAX_DELAY_SECONDS));
     	
 		System.out.print("Do you want to add pre-defined test data? (Y/N): ");
     	BufferedReader reader = new BufferedReader(
@@ -0,0 +1,71 @@
+/**
+* Admission control of TradeService requests by priority lane
+* Every lane has an AIMD concurrency limit. When a lane is overloaded, lower priority lanes are shed first
+* (their limits are cut), the lane itself is cut only when all lower priority lanes are at their minimum.
+* So a bulk load backs off as soon as live ingest latency goes over its target.
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.admission;
+
+import java.util.EnumMap;
+
+import org.pmk.demo.trade.exception.AdmissionRejectedException;
+
+public class AdmissionController {
+
+	private final EnumMap<TradeLane, AimdLimiter> limiters = new EnumMap<>(TradeLane.class);
+
+	//Lane defaults, given limiters replace the defaults of their lanes
+	public AdmissionController(AimdLimiter... laneLimiters) {
+		for (TradeLane lane : TradeLane.values()) {
+			limiters.put(lane, new AimdLimiter(lane));
+		}
+		for (AimdLimiter limiter : laneLimiters) {
+			limiters.put(limiter.getLane(), limiter);
+		}
+	}
+
+	//Admit a request to the lane, returns admission time to be passed to release
+	public long acquire(TradeLane lane) throws AdmissionRejectedException {
+		limiters.get(lane).acquire();
+		return System.nanoTime();
+	}
+
+	//Request admitted at admittedNanos is done
+	public void release(TradeLane lane, long admittedNanos) {
+		if (limiters.get(lane).release(System.nanoTime() - admittedNanos)) {
+			shed(lane);
+		}
+	}
+
+	//Lower priority lanes are cut at most once per target latency of the overloaded lane, while they win back at most
+	//1 per their own (longer) target latency, so they settle near their minimum while the overload lasts
+	private void shed(TradeLane overloadedLane) {
+		AimdLimiter overloadedLimiter = limiters.get(overloadedLane);
+		boolean shedLowerLane = false;
+		for (TradeLane lane : TradeLane.values()) {
+			if (overloadedLane.isHigherPriorityThan(lane)) {
+				shedLowerLane |= limiters.get(lane).decrease(overloadedLimiter.getTargetLatencyNanos());
+			}
+		}
+		if (!shedLowerLane) {
+			overloadedLimiter.decrease();
+		}
+	}
+
+	public AimdLimiter getLimiter(TradeLane lane) {
+		return limiters.get(lane);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder status = new StringBuilder();
+		for (AimdLimiter limiter : limiters.values()) {
+			status.append(limiter.getLane()).append(" limit ").append(limiter.getLimit())
+					.append(" in flight ").append(limiter.getInFlight()).append("; ");
+		}
+		return status.toString();
+	}
+}
@@ -0,0 +1,211 @@
+/**
+* Adaptive concurrency limit of one lane - additive increase, multiplicative decrease (AIMD)
+* Every request completing within the target latency raises the limit by 1/limit (about +1 per limit requests), but by no
+* more than 1 per target latency - the target latency plays the round trip time of TCP, so a lane of quick requests does
+* not win its limit back faster than it is shed. An overloaded lane (or a lane shed for a higher priority lane) cuts it by BACKOFF_RATIO, at most once per target latency.
+* Requests over the limit wait in the lane queue up to the max queue wait, then they are rejected.
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.pmk.demo.trade.exception.AdmissionRejectedException;
+import org.pmk.demo.trade.exception.AdmissionRejectedException.RejectionCode;
+
+public class AimdLimiter {
+
+	public static final double BACKOFF_RATIO = 0.75;
+
+	private static final String EXCEPTION_LIMITS = "Concurrency limits must satisfy 0 < min <= initial <= max";
+
+	private final TradeLane lane;
+	private final int minLimit;
+	private final int maxLimit;
+	private final long targetLatencyNanos;
+	private final long maxQueueWaitNanos;
+	private final int maxQueueLength;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition permitReleased = lock.newCondition();
+	//Guarded by lock
+	private double limit;
+	private int inFlight;
+	private int queued;
+	private long lastDecreaseNanos;
+	private long increaseWindowStartNanos;
+	private double increaseWindowStartLimit;
+
+	//Metrics
+	private final LongAdder admittedCount = new LongAdder();
+	private final LongAdder overloadedCount = new LongAdder();
+	private final LongAdder[] rejectedCounts = new LongAdder[RejectionCode.values().length];
+
+	//Lane defaults
+	public AimdLimiter(TradeLane lane) {
+		this(lane, lane.getInitialLimit(), lane.getMinLimit(), lane.getMaxLimit(), lane.getTargetLatencyMicros(),
+				lane.getMaxQueueWaitMillis(), lane.getMaxQueueLength());
+	}
+
+	//maxQueueWaitMillis 0 - requests over the limit are rejected at once
+	public AimdLimiter(TradeLane lane, int initialLimit, int minLimit, int maxLimit, long targetLatencyMicros,
+			long maxQueueWaitMillis, int maxQueueLength) {
+		if (minLimit <= 0 || minLimit > initialLimit || initialLimit > maxLimit) {
+			throw new IllegalArgumentException(EXCEPTION_LIMITS);
+		}
+		this.lane = lane;
+		this.limit = initialLimit;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.targetLatencyNanos = TimeUnit.MICROSECONDS.toNanos(targetLatencyMicros);
+		this.maxQueueWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxQueueWaitMillis);
+		this.maxQueueLength = maxQueueLength;
+		this.lastDecreaseNanos = System.nanoTime() - targetLatencyNanos;
+		this.increaseWindowStartNanos = System.nanoTime();
+		this.increaseWindowStartLimit = initialLimit;
+		for (int i = 0; i < rejectedCounts.length; i++) {
+			rejectedCounts[i] = new LongAdder();
+		}
+	}
+
+	//Take a permit, waiting in the lane queue when the lane is at its limit
+	public void acquire() {
+		lock.lock();
+		try {
+			if (inFlight >= (int) limit) {
+				if (maxQueueWaitNanos == 0 || queued >= maxQueueLength) {
+					throw reject(RejectionCode.CONCURRENCY_LIMIT);
+				}
+				queued++;
+				try {
+					long remainingNanos = maxQueueWaitNanos;
+					while (inFlight >= (int) limit) {
+						if (remainingNanos <= 0) {
+							throw reject(RejectionCode.QUEUE_TIMEOUT);
+						}
+						remainingNanos = permitReleased.awaitNanos(remainingNanos);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw reject(RejectionCode.INTERRUPTED);
+				} finally {
+					queued--;
+				}
+			}
+			inFlight++;
+			admittedCount.increment();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	//Return the permit with the latency of the request, returns true when the lane was overloaded (latency over target)
+	public boolean release(long latencyNanos) {
+		boolean overloaded = latencyNanos > targetLatencyNanos;
+		lock.lock();
+		try {
+			inFlight--;
+			int previousLimit = (int) limit;
+			if (overloaded) {
+				overloadedCount.increment();
+			} else {
+				increase();
+			}
+			if ((int) limit > previousLimit) {
+				permitReleased.signalAll();
+			} else {
+				permitReleased.signal();
+			}
+		} finally {
+			lock.unlock();
+		}
+		return overloaded;
+	}
+
+	//Additive increase, guarded by lock
+	private void increase() {
+		long now = System.nanoTime();
+		if (now - increaseWindowStartNanos >= targetLatencyNanos) {
+			increaseWindowStartNanos = now;
+			increaseWindowStartLimit = limit;
+		}
+		limit = Math.min(Math.min(maxLimit, increaseWindowStartLimit + 1), limit + 1 / limit);
+	}
+
+	//Multiplicative decrease, at most once per target latency so one burst of slow requests is one decrease
+	//Returns false when the limit is already at its minimum
+	public boolean decrease() {
+		return decrease(targetLatencyNanos);
+	}
+
+	//Same, at most once per intervalNanos - a shed lane is cut at the pace of the overloaded lane
+	public boolean decrease(long intervalNanos) {
+		lock.lock();
+		try {
+			if (limit <= minLimit) {
+				return false;
+			}
+			long now = System.nanoTime();
+			if (now - lastDecreaseNanos >= intervalNanos) {
+				limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+				lastDecreaseNanos = now;
+				increaseWindowStartNanos = now;
+				increaseWindowStartLimit = limit;
+			}
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private AdmissionRejectedException reject(RejectionCode rejectionCode) {
+		rejectedCounts[rejectionCode.ordinal()].increment();
+		return new AdmissionRejectedException(lane, rejectionCode);
+	}
+
+	public TradeLane getLane() {
+		return lane;
+	}
+
+	//Current concurrency limit
+	public int getLimit() {
+		lock.lock();
+		try {
+			return (int) limit;
+		} finally {
+			lock.unlock();
+		}
+	}
+	public long getTargetLatencyNanos() {
+		return targetLatencyNanos;
+	}
+	public int getMinLimit() {
+		return minLimit;
+	}
+	public int getMaxLimit() {
+		return maxLimit;
+	}
+	public int getInFlight() {
+		lock.lock();
+		try {
+			return inFlight;
+		} finally {
+			lock.unlock();
+		}
+	}
+	public long getAdmittedCount() {
+		return admittedCount.sum();
+	}
+	//Requests completed over the target latency
+	public long getOverloadedCount() {
+		return overloadedCount.sum();
+	}
+	public long getRejectedCount(RejectionCode rejectionCode) {
+		return rejectedCounts[rejectionCode.ordinal()].sum();
+	}
+}
@@ -0,0 +1,59 @@
+/**
+* Priority lanes of TradeService requests, declared from the highest priority to the lowest
+* Every lane has its own adaptive concurrency limit (see AimdLimiter), defaults are given here
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.admission;
+
+public enum TradeLane {
+	//addNewTrade - latency sensitive, short queue wait
+	LIVE_INGEST(16, 4, 256, 2000, 100, 1024),
+	//getTrades and other queries
+	READ(4, 1, 64, 100000, 1000, 256),
+	//Expiry runs and maturity look ahead of the scheduler
+	EXPIRY(1, 1, 4, 100000, 10000, 16),
+	//addNewTrades - throughput oriented, waits long instead of failing, long target latency so it recovers slowly after shedding
+	BULK_INGEST(4, 1, 64, 20000, 30000, 64);
+
+	private final int initialLimit;
+	private final int minLimit;
+	private final int maxLimit;
+	private final long targetLatencyMicros;
+	private final long maxQueueWaitMillis;
+	private final int maxQueueLength;
+
+	private TradeLane(int initialLimit, int minLimit, int maxLimit, long targetLatencyMicros, long maxQueueWaitMillis, int maxQueueLength) {
+		this.initialLimit = initialLimit;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.targetLatencyMicros = targetLatencyMicros;
+		this.maxQueueWaitMillis = maxQueueWaitMillis;
+		this.maxQueueLength = maxQueueLength;
+	}
+
+	public int getInitialLimit() {
+		return initialLimit;
+	}
+	public int getMinLimit() {
+		return minLimit;
+	}
+	public int getMaxLimit() {
+		return maxLimit;
+	}
+	public long getTargetLatencyMicros() {
+		return targetLatencyMicros;
+	}
+	public long getMaxQueueWaitMillis() {
+		return maxQueueWaitMillis;
+	}
+	public int getMaxQueueLength() {
+		return maxQueueLength;
+	}
+
+	//Lanes which are shed first when this lane is overloaded
+	public boolean isHigherPriorityThan(TradeLane otherLane) {
+		return ordinal() < otherLane.ordinal();
+	}
+}
@@ -0,0 +1,51 @@
+/**
+* How an aggregate buckets trades by maturity
+* MATURITY_MONTH - bucket is the maturity month as yyyyMM (UTC), e.g. 202611
+* DAYS_TO_MATURITY - bucket is the number of whole days (UTC) from today to maturity, relabelled when a snapshot is taken
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.aggregation;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+public enum MaturityBucketing {
+	MATURITY_MONTH {
+		@Override
+		long bucketOf(long maturityDateTs) {
+			LocalDate maturityDate = LocalDate.ofEpochDay(epochDay(maturityDateTs));
+			return maturityDate.getYear() * 100L + maturityDate.getMonthValue();
+		}
+
+		@Override
+		long label(long bucket, long nowTs) {
+			return bucket;
+		}
+	},
+	DAYS_TO_MATURITY {
+		//Counted by maturity day so that counters do not need to move every midnight
+		@Override
+		long bucketOf(long maturityDateTs) {
+			return epochDay(maturityDateTs);
+		}
+
+		@Override
+		long label(long bucket, long nowTs) {
+			return bucket - epochDay(nowTs);
+		}
+	};
+
+	private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+
+	//Bucket stored by the counters
+	abstract long bucketOf(long maturityDateTs);
+
+	//Bucket as shown in the snapshot taken at nowTs
+	abstract long label(long bucket, long nowTs);
+
+	private static long epochDay(long ts) {
+		return Math.floorDiv(ts, MILLIS_PER_DAY);
+	}
+}
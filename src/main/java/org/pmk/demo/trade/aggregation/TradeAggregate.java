@@ -0,0 +1,88 @@
+/**
+* Live trade count grouped by a trade attribute (e.g. bookId or counterPartyId) and bucketed by maturity
+* Counters are LongAdders in a ConcurrentHashMap, so updates are O(1) and snapshots are taken without any lock.
+* Snapshot is not an atomic cut across all the counters, each counter is exact at the time it is read.
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.aggregation;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.pmk.demo.trade.model.Trade;
+
+public class TradeAggregate {
+
+	private final String name;
+	private final Function<Trade, String> groupBy;
+	private final MaturityBucketing bucketing;
+	private final ConcurrentHashMap<CounterKey, LongAdder> counters = new ConcurrentHashMap<>();
+
+	TradeAggregate(String name, Function<Trade, String> groupBy, MaturityBucketing bucketing) {
+		this.name = name;
+		this.groupBy = groupBy;
+		this.bucketing = bucketing;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public MaturityBucketing getBucketing() {
+		return bucketing;
+	}
+
+	void add(Trade trade, int delta) {
+		CounterKey key = new CounterKey(groupBy.apply(trade), bucketing.bucketOf(trade.getMaturityDateTimeStamp()));
+		LongAdder counter = counters.get(key);
+		if (counter == null) {
+			counter = counters.computeIfAbsent(key, k -> new LongAdder());
+		}
+		counter.add(delta);
+	}
+
+	//group -> (bucket -> live trade count), empty buckets are left out
+	public TradeAggregateSnapshot snapshot(long nowTs) {
+		Map<String, Map<Long, Long>> counts = new TreeMap<>();
+		for (Map.Entry<CounterKey, LongAdder> entry : counters.entrySet()) {
+			long count = entry.getValue().sum();
+			if (count != 0) {
+				CounterKey key = entry.getKey();
+				counts.computeIfAbsent(key.group, group -> new TreeMap<>())
+						.merge(bucketing.label(key.bucket, nowTs), count, Long::sum);
+			}
+		}
+		return new TradeAggregateSnapshot(name, nowTs, counts);
+	}
+
+	//Group may be null when the trade attribute is not set
+	private static final class CounterKey {
+		private final String group;
+		private final long bucket;
+
+		CounterKey(String group, long bucket) {
+			this.group = group == null ? "" : group;
+			this.bucket = bucket;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * group.hashCode() + Long.hashCode(bucket);
+		}
+
+		@Override
+		public boolean equals(Object otherKeyObj) {
+			if (!(otherKeyObj instanceof CounterKey)) {
+				return false;
+			}
+			CounterKey otherKey = (CounterKey) otherKeyObj;
+			return bucket == otherKey.bucket && Objects.equals(group, otherKey.group);
+		}
+	}
+}
@@ -0,0 +1,60 @@
+/**
+* Point in time view of a TradeAggregate - live trade count per group and maturity bucket
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.aggregation;
+
+import java.util.Collections;
+import java.util.Map;
+
+public class TradeAggregateSnapshot {
+
+	private final String name;
+	private final long asOfTs;
+	private final Map<String, Map<Long, Long>> counts;
+
+	TradeAggregateSnapshot(String name, long asOfTs, Map<String, Map<Long, Long>> counts) {
+		this.name = name;
+		this.asOfTs = asOfTs;
+		this.counts = counts;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getAsOfTs() {
+		return asOfTs;
+	}
+
+	//Live trade count of the group in the bucket, 0 when there is none
+	public long getCount(String group, long bucket) {
+		Map<Long, Long> buckets = counts.get(group);
+		Long count = buckets == null ? null : buckets.get(bucket);
+		return count == null ? 0 : count;
+	}
+
+	//Live trade count of the group over all the buckets
+	public long getCount(String group) {
+		long total = 0;
+		Map<Long, Long> buckets = counts.get(group);
+		if (buckets != null) {
+			for (long count : buckets.values()) {
+				total += count;
+			}
+		}
+		return total;
+	}
+
+	//group (ascending) -> bucket (ascending) -> count
+	public Map<String, Map<Long, Long>> getCounts() {
+		return Collections.unmodifiableMap(counts);
+	}
+
+	@Override
+	public String toString() {
+		return name + " as of " + asOfTs + " " + counts;
+	}
+}
@@ -0,0 +1,185 @@
+/**
+* Incremental aggregation over the live trades - latest version of every tradeId which is not expired
+* TradeService reports every stored trade and every expiry run, registered aggregates are updated in O(1) per event
+* instead of being recomputed from getTrades().
+* Events of one tradeId are applied atomically (ConcurrentHashMap compute), a stored version lower than the counted one is ignored,
+* so events reported out of order by concurrent writers do not corrupt the counters.
+* While the engine is loaded from the store (beginLoad, load) reported events are buffered and replayed after the snapshot,
+* so trades stored during the load are neither lost nor overwritten by the older snapshot.
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.aggregation;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import org.pmk.demo.trade.model.Trade;
+
+public class TradeAggregationEngine {
+
+	private static final String EXCEPTION_DUPLICATE_AGGREGATE = "Aggregate is already registered: ";
+
+	private final Clock clock;
+	private final List<TradeAggregate> aggregates = new CopyOnWriteArrayList<>();
+	//Latest version seen per tradeId and whether it is counted (not expired)
+	//Expired flag is kept here because in-memory DAOs expire the stored trade object itself
+	private final ConcurrentHashMap<String, LiveTrade> liveTrades = new ConcurrentHashMap<>();
+	//Events reported between beginLoad and the end of load, guarded by itself
+	private final List<Runnable> pendingEvents = new ArrayList<>();
+	private volatile boolean buffering;
+
+	public TradeAggregationEngine() {
+		this(Clock.systemUTC());
+	}
+
+	//Clock is used to relabel days to maturity buckets
+	public TradeAggregationEngine(Clock clock) {
+		this.clock = clock;
+	}
+
+	//Register aggregates before trades are reported, a new aggregate is seeded from the live trades known so far
+	public synchronized TradeAggregate register(String name, Function<Trade, String> groupBy, MaturityBucketing bucketing) {
+		if (getAggregate(name) != null) {
+			throw new IllegalArgumentException(EXCEPTION_DUPLICATE_AGGREGATE + name);
+		}
+		TradeAggregate aggregate = new TradeAggregate(name, groupBy, bucketing);
+		for (LiveTrade liveTrade : liveTrades.values()) {
+			if (liveTrade.counted) {
+				aggregate.add(liveTrade.trade, 1);
+			}
+		}
+		aggregates.add(aggregate);
+		return aggregate;
+	}
+
+	public TradeAggregate getAggregate(String name) {
+		for (TradeAggregate aggregate : aggregates) {
+			if (aggregate.getName().equals(name)) {
+				return aggregate;
+			}
+		}
+		return null;
+	}
+
+	public TradeAggregateSnapshot snapshot(String name) {
+		TradeAggregate aggregate = getAggregate(name);
+		return aggregate == null ? null : aggregate.snapshot(clock.millis());
+	}
+
+	//Buffer reported events until load is done, call it before the engine starts receiving events and the store is read
+	public void beginLoad() {
+		synchronized (pendingEvents) {
+			buffering = true;
+		}
+	}
+
+	//Load the current store content, trades must be in getAllTrades order (tradeId ascending, tradeVersion descending)
+	//Only the latest version of every tradeId is live. Events buffered since beginLoad are replayed after the snapshot
+	public void load(Collection<Trade> trades) {
+		String previousTradeId = null;
+		for (Trade trade : trades) {
+			if (!trade.getTradeId().equals(previousTradeId)) {
+				applyTradeStored(trade);
+				previousTradeId = trade.getTradeId();
+			}
+		}
+		synchronized (pendingEvents) {
+			for (Runnable event : pendingEvents) {
+				event.run();
+			}
+			pendingEvents.clear();
+			buffering = false;
+		}
+	}
+
+	//Trade was added or updated (same version) in the store
+	public void onTradeStored(Trade trade) {
+		if (buffering && buffer(() -> applyTradeStored(trade))) {
+			return;
+		}
+		applyTradeStored(trade);
+	}
+
+	//Expiry run marked trades of these tradeIds maturing before maturityDateTs as expired
+	public void onTradesExpired(Collection<String> tradeIds, long maturityDateTs) {
+		if (buffering && buffer(() -> applyTradesExpired(tradeIds, maturityDateTs))) {
+			return;
+		}
+		applyTradesExpired(tradeIds, maturityDateTs);
+	}
+
+	//A version lower than the one already seen is ignored, so late events of concurrent writers do not win
+	private void applyTradeStored(Trade trade) {
+		liveTrades.compute(trade.getTradeId(), (tradeId, liveTrade) -> {
+			if (liveTrade != null && liveTrade.trade.getTradeVersion() > trade.getTradeVersion()) {
+				return liveTrade;
+			}
+			if (liveTrade != null && liveTrade.counted) {
+				count(liveTrade.trade, -1);
+			}
+			boolean counted = !trade.isExpired();
+			if (counted) {
+				count(trade, 1);
+			}
+			return new LiveTrade(trade, counted);
+		});
+	}
+
+	private void applyTradesExpired(Collection<String> tradeIds, long maturityDateTs) {
+		for (String tradeId : tradeIds) {
+			liveTrades.computeIfPresent(tradeId, (id, liveTrade) -> {
+				//Only older versions may have expired, latest version stays live
+				if (!liveTrade.counted || liveTrade.trade.getMaturityDateTimeStamp() >= maturityDateTs) {
+					return liveTrade;
+				}
+				count(liveTrade.trade, -1);
+				return new LiveTrade(liveTrade.trade, false);
+			});
+		}
+	}
+
+	//Number of live trades over all the groups
+	public int getLiveTradeCount() {
+		int count = 0;
+		for (LiveTrade liveTrade : liveTrades.values()) {
+			if (liveTrade.counted) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	//False when load is already done, the event is then applied by the caller
+	private boolean buffer(Runnable event) {
+		synchronized (pendingEvents) {
+			if (!buffering) {
+				return false;
+			}
+			pendingEvents.add(event);
+			return true;
+		}
+	}
+
+	private void count(Trade trade, int delta) {
+		for (TradeAggregate aggregate : aggregates) {
+			aggregate.add(trade, delta);
+		}
+	}
+
+	private static final class LiveTrade {
+		private final Trade trade;
+		private final boolean counted;
+
+		LiveTrade(Trade trade, boolean counted) {
+			this.trade = trade;
+			this.counted = counted;
+		}
+	}
+}
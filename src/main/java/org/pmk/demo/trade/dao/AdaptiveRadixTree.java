@@ -0,0 +1,665 @@
+/**
+* Adaptive radix tree (ART) of values keyed by a String read from the value, iterated in String.compareTo order
+* Inner nodes grow and shrink between 4, 16, 48 and 256 children, single child paths are compressed into the node prefix
+* and values are stored directly in child slots, so memory per key is only its share of inner nodes
+* and lookups cost O(key length) instead of O(log n) String compares.
+* Supports ordered, prefix and range iteration. Not thread safe, guarded by the owning DAO.
+*
+* Keys are encoded to bytes preserving the order of String.compareTo (UTF-16 code units):
+* char below 0x7F is one byte (char + 1), other chars are 3 bytes (0x80 + high 4 bits, middle 6 bits, low 6 bits),
+* and byte 0 terminates the key, so no key is a prefix of another key and "T1" sorts before "T10".
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.dao;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+public class AdaptiveRadixTree<V> {
+
+	private static final int NO_CHILD = 256;
+
+	//Values are stored in the child slots of inner nodes, there are no leaf objects
+	//Key of a value is read from the value itself, so a key costs no memory apart from its share of inner nodes
+	private final Function<? super V, String> keyOf;
+	private Object root;
+	private int size;
+	//Value replaced or removed by the last put or remove
+	private V lastValue;
+
+	//keyOf - key of a value, it must not change while the value is in the tree
+	public AdaptiveRadixTree(Function<? super V, String> keyOf) {
+		this.keyOf = keyOf;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	//Keys of ASCII chars (other than DEL) are read in place, other keys are encoded first - lookup of such keys does not allocate
+	public V get(String key) {
+		byte[] encodedKey = isEncodedInPlace(key) ? null : encode(key, true);
+		int keyLength = encodedKey == null ? key.length() + 1 : encodedKey.length;
+		Object node = root;
+		int depth = 0;
+		while (node instanceof InnerNode) {
+			InnerNode inner = (InnerNode) node;
+			byte[] prefix = inner.prefix;
+			if (depth + prefix.length >= keyLength) {
+				return null;
+			}
+			for (int i = 0; i < prefix.length; i++) {
+				if (prefix[i] != keyByte(key, encodedKey, depth + i)) {
+					return null;
+				}
+			}
+			depth += prefix.length;
+			node = inner.findChild(keyByte(key, encodedKey, depth) & 0xFF);
+			depth++;
+		}
+		V value = asValue(node);
+		return value != null && keyOf.apply(value).equals(key) ? value : null;
+	}
+
+	//Add or replace the value of its key, returns previous value, null when key was not present
+	public V put(V value) {
+		String key = keyOf.apply(value);
+		lastValue = null;
+		root = insert(root, key, encode(key, true), 0, value);
+		V previous = lastValue;
+		lastValue = null;
+		return previous;
+	}
+
+	//mappingFunction must return a non null value with the given key
+	public V computeIfAbsent(String key, Function<? super String, ? extends V> mappingFunction) {
+		V value = get(key);
+		if (value == null) {
+			value = mappingFunction.apply(key);
+			root = insert(root, key, encode(key, true), 0, value);
+		}
+		return value;
+	}
+
+	//Returns removed value, null when key was not present
+	public V remove(String key) {
+		lastValue = null;
+		root = delete(root, key, encode(key, true), 0);
+		V removed = lastValue;
+		lastValue = null;
+		return removed;
+	}
+
+	public void clear() {
+		root = null;
+		size = 0;
+	}
+
+	//Values in key order
+	public void forEachValue(Consumer<? super V> action) {
+		walk(root, 0, null, null, null, null, action);
+	}
+
+	//Keys and values in key order
+	public void forEach(BiConsumer<? super String, ? super V> action) {
+		forEachValue(value -> action.accept(keyOf.apply(value), value));
+	}
+
+	//Values of keys starting with prefix, in key order
+	public void forEachValueWithPrefix(String prefix, Consumer<? super V> action) {
+		byte[] encodedPrefix = encode(prefix, false);
+		Object node = root;
+		int depth = 0;
+		while (node instanceof InnerNode) {
+			InnerNode inner = (InnerNode) node;
+			for (int i = 0; i < inner.prefix.length && depth + i < encodedPrefix.length; i++) {
+				if (inner.prefix[i] != encodedPrefix[depth + i]) {
+					return;
+				}
+			}
+			depth += inner.prefix.length;
+			if (depth >= encodedPrefix.length) {
+				walk(inner, 0, null, null, null, null, action);
+				return;
+			}
+			node = inner.findChild(encodedPrefix[depth] & 0xFF);
+			depth++;
+		}
+		V value = asValue(node);
+		if (value != null && keyOf.apply(value).startsWith(prefix)) {
+			action.accept(value);
+		}
+	}
+
+	//Values of keys in [fromKey, toKey) in key order, null bound means unbounded
+	public void forEachValueInRange(String fromKey, String toKey, Consumer<? super V> action) {
+		walk(root, 0, fromKey, fromKey == null ? null : encode(fromKey, true), toKey, fromKey, action);
+	}
+
+	//In-order walk, activeLowerKey is not null while the path so far equals the lower bound
+	//Returns false when the upper bound is reached
+	private boolean walk(Object node, int depth, String lowerKey, byte[] lower, String upperKey, String activeLowerKey,
+			Consumer<? super V> action) {
+		if (node == null) {
+			return true;
+		}
+		if (!(node instanceof InnerNode)) {
+			V value = asValue(node);
+			String key = activeLowerKey != null || upperKey != null ? keyOf.apply(value) : null;
+			if (activeLowerKey != null && key.compareTo(activeLowerKey) < 0) {
+				return true;
+			}
+			if (upperKey != null && key.compareTo(upperKey) >= 0) {
+				return false;
+			}
+			action.accept(value);
+			return true;
+		}
+		InnerNode inner = (InnerNode) node;
+		boolean lowerActive = activeLowerKey != null;
+		for (int i = 0; i < inner.prefix.length && lowerActive; i++) {
+			if (depth + i >= lower.length) {
+				lowerActive = false;
+			} else {
+				int prefixByte = inner.prefix[i] & 0xFF;
+				int lowerByte = lower[depth + i] & 0xFF;
+				if (prefixByte < lowerByte) {
+					//Whole subtree is below lower bound
+					return true;
+				}
+				if (prefixByte > lowerByte) {
+					lowerActive = false;
+				}
+			}
+		}
+		depth += inner.prefix.length;
+		int lowerByte = -1;
+		if (lowerActive) {
+			if (depth < lower.length) {
+				lowerByte = lower[depth] & 0xFF;
+			} else {
+				lowerActive = false;
+			}
+		}
+		for (int b = inner.nextKey(Math.max(lowerByte, 0)); b < NO_CHILD; b = inner.nextKey(b + 1)) {
+			if (!walk(inner.findChild(b), depth + 1, lowerKey, lower, upperKey, lowerActive && b == lowerByte ? lowerKey : null, action)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	//Returns the node or value to be stored in place of node
+	private Object insert(Object node, String key, byte[] encodedKey, int depth, V value) {
+		if (node == null) {
+			size++;
+			return value;
+		}
+		if (!(node instanceof InnerNode)) {
+			V existing = asValue(node);
+			String existingKey = keyOf.apply(existing);
+			if (existingKey.equals(key)) {
+				lastValue = existing;
+				return value;
+			}
+			//Keys are prefix free, they differ before either of them ends
+			byte[] encodedExisting = encode(existingKey, true);
+			int split = depth;
+			while (encodedExisting[split] == encodedKey[split]) {
+				split++;
+			}
+			Node4 newNode = new Node4(Arrays.copyOfRange(encodedKey, depth, split));
+			newNode.addChild(encodedExisting[split] & 0xFF, existing);
+			newNode.addChild(encodedKey[split] & 0xFF, value);
+			size++;
+			return newNode;
+		}
+		InnerNode inner = (InnerNode) node;
+		int matched = matchingPrefix(inner.prefix, encodedKey, depth);
+		if (matched < inner.prefix.length) {
+			//Split the compressed path
+			Node4 newNode = new Node4(Arrays.copyOfRange(inner.prefix, 0, matched));
+			int innerByte = inner.prefix[matched] & 0xFF;
+			inner.prefix = Arrays.copyOfRange(inner.prefix, matched + 1, inner.prefix.length);
+			newNode.addChild(innerByte, inner);
+			newNode.addChild(encodedKey[depth + matched] & 0xFF, value);
+			size++;
+			return newNode;
+		}
+		depth += inner.prefix.length;
+		int keyByte = encodedKey[depth] & 0xFF;
+		Object child = inner.findChild(keyByte);
+		if (child == null) {
+			size++;
+			return inner.addChild(keyByte, value);
+		}
+		Object newChild = insert(child, key, encodedKey, depth + 1, value);
+		if (newChild != child) {
+			inner.replaceChild(keyByte, newChild);
+		}
+		return inner;
+	}
+
+	//Returns the node or value to be stored in place of node, null when it is gone
+	private Object delete(Object node, String key, byte[] encodedKey, int depth) {
+		if (node == null) {
+			return null;
+		}
+		if (!(node instanceof InnerNode)) {
+			V existing = asValue(node);
+			if (!keyOf.apply(existing).equals(key)) {
+				return existing;
+			}
+			lastValue = existing;
+			size--;
+			return null;
+		}
+		InnerNode inner = (InnerNode) node;
+		if (matchingPrefix(inner.prefix, encodedKey, depth) != inner.prefix.length) {
+			return inner;
+		}
+		int childDepth = depth + inner.prefix.length;
+		int keyByte = encodedKey[childDepth] & 0xFF;
+		Object child = inner.findChild(keyByte);
+		if (child == null) {
+			return inner;
+		}
+		Object newChild = delete(child, key, encodedKey, childDepth + 1);
+		if (newChild == child) {
+			return inner;
+		}
+		if (newChild != null) {
+			inner.replaceChild(keyByte, newChild);
+			return inner;
+		}
+		InnerNode result = inner.removeChild(keyByte);
+		if (result.childCount == 1) {
+			//Collapse the single child path into the child
+			int onlyByte = result.nextKey(0);
+			Object onlyChild = result.findChild(onlyByte);
+			if (onlyChild instanceof InnerNode) {
+				InnerNode onlyInner = (InnerNode) onlyChild;
+				byte[] prefix = new byte[result.prefix.length + 1 + onlyInner.prefix.length];
+				System.arraycopy(result.prefix, 0, prefix, 0, result.prefix.length);
+				prefix[result.prefix.length] = (byte) onlyByte;
+				System.arraycopy(onlyInner.prefix, 0, prefix, result.prefix.length + 1, onlyInner.prefix.length);
+				onlyInner.prefix = prefix;
+			}
+			return onlyChild;
+		}
+		return result;
+	}
+
+	//Anything in a child slot which is not an inner node is a value
+	@SuppressWarnings("unchecked")
+	private V asValue(Object node) {
+		return (V) node;
+	}
+
+	//Number of prefix bytes equal to key bytes from depth
+	private static int matchingPrefix(byte[] prefix, byte[] key, int depth) {
+		int i = 0;
+		while (i < prefix.length && depth + i < key.length && prefix[i] == key[depth + i]) {
+			i++;
+		}
+		return i;
+	}
+
+	private static boolean isEncodedInPlace(String key) {
+		for (int i = 0; i < key.length(); i++) {
+			if (key.charAt(i) >= 0x7F) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	//Byte of the encoded key (with terminator) at the position, from the encoded key or from the chars of an in place key
+	private static byte keyByte(String key, byte[] encodedKey, int position) {
+		if (encodedKey != null) {
+			return encodedKey[position];
+		}
+		return position == key.length() ? 0 : (byte) (key.charAt(position) + 1);
+	}
+
+	static byte[] encode(String key, boolean terminate) {
+		int length = terminate ? 1 : 0;
+		for (int i = 0; i < key.length(); i++) {
+			length += key.charAt(i) < 0x7F ? 1 : 3;
+		}
+		byte[] encoded = new byte[length];
+		int position = 0;
+		for (int i = 0; i < key.length(); i++) {
+			char c = key.charAt(i);
+			if (c < 0x7F) {
+				encoded[position++] = (byte) (c + 1);
+			} else {
+				encoded[position++] = (byte) (0x80 + (c >> 12));
+				encoded[position++] = (byte) ((c >> 6) & 0x3F);
+				encoded[position++] = (byte) (c & 0x3F);
+			}
+		}
+		return encoded;
+	}
+
+	//Inner nodes, a child is an inner node or a value
+	private abstract static class InnerNode {
+		//Compressed path - bytes shared by all the keys below this node
+		byte[] prefix;
+		int childCount;
+
+		InnerNode(byte[] prefix) {
+			this.prefix = prefix;
+		}
+
+		abstract Object findChild(int keyByte);
+
+		//Smallest key byte >= fromByte which has a child, NO_CHILD when there is none
+		abstract int nextKey(int fromByte);
+
+		abstract void replaceChild(int keyByte, Object child);
+
+		//Returns this node or a larger node when this one is full
+		abstract InnerNode addChild(int keyByte, Object child);
+
+		//Returns this node or a smaller node when this one is sparse
+		abstract InnerNode removeChild(int keyByte);
+	}
+
+	//Up to 4 children, keys sorted
+	private static final class Node4 extends InnerNode {
+		private final byte[] keys = new byte[4];
+		private final Object[] children = new Object[4];
+
+		Node4(byte[] prefix) {
+			super(prefix);
+		}
+
+		@Override
+		Object findChild(int keyByte) {
+			for (int i = 0; i < childCount; i++) {
+				if ((keys[i] & 0xFF) == keyByte) {
+					return children[i];
+				}
+			}
+			return null;
+		}
+
+		@Override
+		int nextKey(int fromByte) {
+			for (int i = 0; i < childCount; i++) {
+				if ((keys[i] & 0xFF) >= fromByte) {
+					return keys[i] & 0xFF;
+				}
+			}
+			return NO_CHILD;
+		}
+
+		@Override
+		void replaceChild(int keyByte, Object child) {
+			for (int i = 0; i < childCount; i++) {
+				if ((keys[i] & 0xFF) == keyByte) {
+					children[i] = child;
+					return;
+				}
+			}
+		}
+
+		@Override
+		InnerNode addChild(int keyByte, Object child) {
+			if (childCount == keys.length) {
+				Node16 grown = new Node16(prefix);
+				for (int i = 0; i < childCount; i++) {
+					grown.addChild(keys[i] & 0xFF, children[i]);
+				}
+				return grown.addChild(keyByte, child);
+			}
+			int position = 0;
+			while (position < childCount && (keys[position] & 0xFF) < keyByte) {
+				position++;
+			}
+			System.arraycopy(keys, position, keys, position + 1, childCount - position);
+			System.arraycopy(children, position, children, position + 1, childCount - position);
+			keys[position] = (byte) keyByte;
+			children[position] = child;
+			childCount++;
+			return this;
+		}
+
+		@Override
+		InnerNode removeChild(int keyByte) {
+			for (int i = 0; i < childCount; i++) {
+				if ((keys[i] & 0xFF) == keyByte) {
+					System.arraycopy(keys, i + 1, keys, i, childCount - i - 1);
+					System.arraycopy(children, i + 1, children, i, childCount - i - 1);
+					children[--childCount] = null;
+					break;
+				}
+			}
+			return this;
+		}
+	}
+
+	//Up to 16 children, keys sorted
+	private static final class Node16 extends InnerNode {
+		private final byte[] keys = new byte[16];
+		private final Object[] children = new Object[16];
+
+		Node16(byte[] prefix) {
+			super(prefix);
+		}
+
+		private int indexOf(int keyByte) {
+			int low = 0;
+			int high = childCount - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				int midKey = keys[mid] & 0xFF;
+				if (midKey < keyByte) {
+					low = mid + 1;
+				} else if (midKey > keyByte) {
+					high = mid - 1;
+				} else {
+					return mid;
+				}
+			}
+			return -(low + 1);
+		}
+
+		@Override
+		Object findChild(int keyByte) {
+			int index = indexOf(keyByte);
+			return index >= 0 ? children[index] : null;
+		}
+
+		@Override
+		int nextKey(int fromByte) {
+			int index = indexOf(fromByte);
+			if (index < 0) {
+				index = -index - 1;
+			}
+			return index < childCount ? keys[index] & 0xFF : NO_CHILD;
+		}
+
+		@Override
+		void replaceChild(int keyByte, Object child) {
+			int index = indexOf(keyByte);
+			if (index >= 0) {
+				children[index] = child;
+			}
+		}
+
+		@Override
+		InnerNode addChild(int keyByte, Object child) {
+			if (childCount == keys.length) {
+				Node48 grown = new Node48(prefix);
+				for (int i = 0; i < childCount; i++) {
+					grown.addChild(keys[i] & 0xFF, children[i]);
+				}
+				return grown.addChild(keyByte, child);
+			}
+			int position = -indexOf(keyByte) - 1;
+			System.arraycopy(keys, position, keys, position + 1, childCount - position);
+			System.arraycopy(children, position, children, position + 1, childCount - position);
+			keys[position] = (byte) keyByte;
+			children[position] = child;
+			childCount++;
+			return this;
+		}
+
+		@Override
+		InnerNode removeChild(int keyByte) {
+			int index = indexOf(keyByte);
+			if (index >= 0) {
+				System.arraycopy(keys, index + 1, keys, index, childCount - index - 1);
+				System.arraycopy(children, index + 1, children, index, childCount - index - 1);
+				children[--childCount] = null;
+			}
+			if (childCount > 3) {
+				return this;
+			}
+			Node4 shrunk = new Node4(prefix);
+			for (int i = 0; i < childCount; i++) {
+				shrunk.addChild(keys[i] & 0xFF, children[i]);
+			}
+			return shrunk;
+		}
+	}
+
+	//Up to 48 children, 256 entry index into the children slots
+	private static final class Node48 extends InnerNode {
+		//Slot + 1 of the child, 0 when there is no child
+		private final byte[] childIndex = new byte[256];
+		private final Object[] children = new Object[48];
+
+		Node48(byte[] prefix) {
+			super(prefix);
+		}
+
+		@Override
+		Object findChild(int keyByte) {
+			int slot = childIndex[keyByte];
+			return slot == 0 ? null : children[slot - 1];
+		}
+
+		@Override
+		int nextKey(int fromByte) {
+			for (int b = fromByte; b < NO_CHILD; b++) {
+				if (childIndex[b] != 0) {
+					return b;
+				}
+			}
+			return NO_CHILD;
+		}
+
+		@Override
+		void replaceChild(int keyByte, Object child) {
+			children[childIndex[keyByte] - 1] = child;
+		}
+
+		@Override
+		InnerNode addChild(int keyByte, Object child) {
+			if (childCount == children.length) {
+				Node256 grown = new Node256(prefix);
+				for (int b = 0; b < NO_CHILD; b++) {
+					if (childIndex[b] != 0) {
+						grown.addChild(b, children[childIndex[b] - 1]);
+					}
+				}
+				return grown.addChild(keyByte, child);
+			}
+			int slot = 0;
+			while (children[slot] != null) {
+				slot++;
+			}
+			children[slot] = child;
+			childIndex[keyByte] = (byte) (slot + 1);
+			childCount++;
+			return this;
+		}
+
+		@Override
+		InnerNode removeChild(int keyByte) {
+			int slot = childIndex[keyByte];
+			if (slot != 0) {
+				children[slot - 1] = null;
+				childIndex[keyByte] = 0;
+				childCount--;
+			}
+			if (childCount > 12) {
+				return this;
+			}
+			Node16 shrunk = new Node16(prefix);
+			for (int b = 0; b < NO_CHILD; b++) {
+				if (childIndex[b] != 0) {
+					shrunk.addChild(b, children[childIndex[b] - 1]);
+				}
+			}
+			return shrunk;
+		}
+	}
+
+	//Direct index by key byte
+	private static final class Node256 extends InnerNode {
+		private final Object[] children = new Object[256];
+
+		Node256(byte[] prefix) {
+			super(prefix);
+		}
+
+		@Override
+		Object findChild(int keyByte) {
+			return children[keyByte];
+		}
+
+		@Override
+		int nextKey(int fromByte) {
+			for (int b = fromByte; b < NO_CHILD; b++) {
+				if (children[b] != null) {
+					return b;
+				}
+			}
+			return NO_CHILD;
+		}
+
+		@Override
+		void replaceChild(int keyByte, Object child) {
+			children[keyByte] = child;
+		}
+
+		@Override
+		InnerNode addChild(int keyByte, Object child) {
+			if (children[keyByte] == null) {
+				childCount++;
+			}
+			children[keyByte] = child;
+			return this;
+		}
+
+		@Override
+		InnerNode removeChild(int keyByte) {
+			if (children[keyByte] != null) {
+				children[keyByte] = null;
+				childCount--;
+			}
+			if (childCount > 37) {
+				return this;
+			}
+			Node48 shrunk = new Node48(prefix);
+			for (int b = 0; b < NO_CHILD; b++) {
+				if (children[b] != null) {
+					shrunk.addChild(b, children[b]);
+				}
+			}
+			return shrunk;
+		}
+	}
+}
@@ -0,0 +1,306 @@
+/**
+* Read-through caching decorator for any TradeDao
+* Keeps latest version per tradeId in a bounded LRU cache so that repeated
+* getTradeByIdLatestVersion calls do not go to the (possibly remote) backing store
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.pmk.demo.trade.model.Trade;
+
+public class CachingTradeDao implements TradeDao {
+
+	public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+	private static final String EXCEPTION_MAX_ENTRIES = "Cache max entries must be greater than zero";
+
+	//Marker stored in the cache for tradeIds which are known to be absent in the backing store (negative caching)
+	private static final Trade ABSENT = Trade.createTrade("", Integer.MIN_VALUE, null, null, 0, 0, false);
+
+	private final TradeDao delegate;
+	private final int maxEntries;
+
+	//LinkedHashMap with access order gives LRU eviction, all access is guarded by the map monitor
+	private final LinkedHashMap<String, Trade> cache;
+
+	//In-flight loads, concurrent misses for the same tradeId wait for a single load (stampede protection)
+	private final Map<String, FutureTask<Trade>> loads = new ConcurrentHashMap<>();
+
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+
+	public CachingTradeDao(TradeDao delegate) {
+		this(delegate, DEFAULT_MAX_ENTRIES);
+	}
+
+	public CachingTradeDao(TradeDao delegate, int maxEntries) {
+		if (maxEntries <= 0) {
+			throw new IllegalArgumentException(EXCEPTION_MAX_ENTRIES);
+		}
+		this.delegate = delegate;
+		this.maxEntries = maxEntries;
+		this.cache = new LinkedHashMap<String, Trade>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Trade> eldest) {
+				boolean evict = size() > CachingTradeDao.this.maxEntries;
+				if (evict) {
+					evictionCount.increment();
+				}
+				return evict;
+			}
+		};
+	}
+
+	@Override
+	//Write-through: backing store first and then cache, only if trade is the latest known version
+	public void addTrade(Trade theTrade) {
+		delegate.addTrade(theTrade);
+		writeThrough(theTrade);
+	}
+
+	@Override
+	//Write-through: backing store first and then cache
+	public void updateTrade(Trade oldTrade, Trade newTrade) {
+		delegate.updateTrade(oldTrade, newTrade);
+		if (!oldTrade.getTradeId().equals(newTrade.getTradeId())) {
+			invalidate(oldTrade.getTradeId());
+		}
+		writeThrough(newTrade);
+	}
+
+	@Override
+	//Write-through on success, on conflict cached version is stale so it is invalidated
+	public boolean upsertVersioned(Trade theTrade, int expectedLatestVersion) {
+		boolean written = delegate.upsertVersioned(theTrade, expectedLatestVersion);
+		if (written) {
+			writeThrough(theTrade);
+		} else {
+			invalidate(theTrade.getTradeId());
+		}
+		return written;
+	}
+
+	@Override
+	//Full scans are not cached
+	public Collection<Trade> getAllTrades() {
+		return delegate.getAllTrades();
+	}
+
+	@Override
+	//Read-through: serve from cache, otherwise load once from backing store and cache the result (including absence)
+	public Trade getTradeByIdLatestVersion(String tradeId) {
+		synchronized (cache) {
+			if (cache.containsKey(tradeId)) {
+				hitCount.increment();
+				return fromCache(cache.get(tradeId));
+			}
+		}
+		missCount.increment();
+
+		FutureTask<Trade> load = new FutureTask<>(() -> delegate.getTradeByIdLatestVersion(tradeId));
+		FutureTask<Trade> inFlight = loads.putIfAbsent(tradeId, load);
+		if (inFlight == null) {
+			inFlight = load;
+			try {
+				load.run();
+			} finally {
+				completeLoad(tradeId, load);
+			}
+		}
+		return await(inFlight);
+	}
+
+	@Override
+	public Collection<Trade> findTradesLessThanMaturityDate(long maturityDateTs) {
+		return delegate.findTradesLessThanMaturityDate(maturityDateTs);
+	}
+
+	@Override
+	//Scans are not cached
+	public Collection<Trade> findTradesByIdPrefix(String tradeIdPrefix) {
+		return delegate.findTradesByIdPrefix(tradeIdPrefix);
+	}
+
+	@Override
+	public Collection<Trade> findTradesByIdRange(String fromTradeId, String toTradeId) {
+		return delegate.findTradesByIdRange(fromTradeId, toTradeId);
+	}
+
+	@Override
+	//Historical queries are not cached
+	public Trade getTradeAsOf(String tradeId, long asOfTs) {
+		return delegate.getTradeAsOf(tradeId, asOfTs);
+	}
+
+	@Override
+	public void forEachTradeAsOf(long asOfTs, Consumer<? super Trade> action) {
+		delegate.forEachTradeAsOf(asOfTs, action);
+	}
+
+	@Override
+	//Cached trades of expired tradeIds may be copies (e.g. for JdbcTradeDao), so they are invalidated
+	//tradeIds are collected only when the caller needs them or a cached trade may be expired,
+	//otherwise the delegate expires without them (one set-based UPDATE for JdbcTradeDao)
+	public int expireTradesMaturingBefore(long maturityDateTs, int maxTrades, Collection<String> expiredTradeIds) {
+		if (expiredTradeIds == null && !cachesUnexpiredMaturingBefore(maturityDateTs)) {
+			int expiredCount = delegate.expireTradesMaturingBefore(maturityDateTs, maxTrades, null);
+			if (expiredCount > 0) {
+				invalidateUnexpiredMaturingBefore(maturityDateTs);
+			}
+			return expiredCount;
+		}
+		List<String> tradeIds = new ArrayList<>();
+		int expiredCount = delegate.expireTradesMaturingBefore(maturityDateTs, maxTrades, tradeIds);
+		for (String tradeId : tradeIds) {
+			invalidate(tradeId);
+		}
+		if (expiredTradeIds != null) {
+			expiredTradeIds.addAll(tradeIds);
+		}
+		return expiredCount;
+	}
+
+	@Override
+	public int[] getMaturityProfile(long fromTs, long bucketMillis, int bucketCount) {
+		return delegate.getMaturityProfile(fromTs, bucketMillis, bucketCount);
+	}
+
+	//Remove tradeId from the cache, next read will go to the backing store
+	public void invalidate(String tradeId) {
+		synchronized (cache) {
+			loads.remove(tradeId);
+			cache.remove(tradeId);
+		}
+	}
+
+	public void invalidateAll() {
+		synchronized (cache) {
+			loads.clear();
+			cache.clear();
+		}
+	}
+
+	//Stats
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+	public long getMissCount() {
+		return missCount.sum();
+	}
+	public long getEvictionCount() {
+		return evictionCount.sum();
+	}
+	public int getSize() {
+		synchronized (cache) {
+			return cache.size();
+		}
+	}
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	//Cache the trade if it is not older than the cached latest version
+	//When tradeId is not cached we do not know the latest version in the backing store, so only drop the in-flight load
+	private void writeThrough(Trade theTrade) {
+		String tradeId = theTrade.getTradeId();
+		synchronized (cache) {
+			//Any load started before this write may return stale data, do not let it populate the cache
+			loads.remove(tradeId);
+			if (cache.containsKey(tradeId)) {
+				Trade cached = cache.get(tradeId);
+				if (cached == ABSENT || cached.getTradeVersion() <= theTrade.getTradeVersion()) {
+					cache.put(tradeId, theTrade);
+				}
+			}
+		}
+	}
+
+	private boolean cachesUnexpiredMaturingBefore(long maturityDateTs) {
+		synchronized (cache) {
+			for (Trade cached : cache.values()) {
+				if (isUnexpiredMaturingBefore(cached, maturityDateTs)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	//After an expiry without tradeIds - reads running meanwhile may have cached copies loaded before the update,
+	//loads still in flight are not let populate the cache
+	private void invalidateUnexpiredMaturingBefore(long maturityDateTs) {
+		synchronized (cache) {
+			loads.clear();
+			for (Iterator<Trade> iterator = cache.values().iterator(); iterator.hasNext();) {
+				if (isUnexpiredMaturingBefore(iterator.next(), maturityDateTs)) {
+					iterator.remove();
+				}
+			}
+		}
+	}
+
+	private static boolean isUnexpiredMaturingBefore(Trade cached, long maturityDateTs) {
+		return cached != ABSENT && !cached.isExpired() && cached.getMaturityDateTimeStamp() < maturityDateTs;
+	}
+
+	//Populate the cache only if no write happened for this tradeId while the load was running
+	private void completeLoad(String tradeId, FutureTask<Trade> load) {
+		synchronized (cache) {
+			if (loads.remove(tradeId, load)) {
+				try {
+					Trade loaded = load.get();
+					cache.put(tradeId, loaded == null ? ABSENT : loaded);
+				} catch (InterruptedException | ExecutionException e) {
+					//Failed loads are not cached, caller gets the exception from await
+				}
+			}
+		}
+	}
+
+	private static Trade fromCache(Trade cached) {
+		return cached == ABSENT ? null : cached;
+	}
+
+	private static Trade await(FutureTask<Trade> load) {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return load.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -6,54 +6,182 @@
 */
 package org.pmk.demo.trade.dao;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Set;
-import java.util.TreeSet;
-import java.util.stream.Collectors;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 import org.pmk.demo.trade.model.Trade;
 
 public class InMemoryTradeDao implements TradeDao {
 	
-	//Used TreeSet as it sorts date using Comparable or Comparator
-	//Trade bean implements compareTo which helps sorting data using tradeId (ascending) and tradeVersion (descending)
-	//We can also use TreeMap with TradeKey (tradeId, tradeVersion) as key and Trade as value
-	Set<Trade> tradeData = new TreeSet<>();
+	//Adaptive radix tree keeps tradeIds sorted (ascending) with less memory per key than TreeMap and supports prefix and range scans,
+	//every tradeId has its version timeline sorted by tradeVersion
+	//Together they give the same order as Trade compareTo - tradeId (ascending) and tradeVersion (descending)
+	//Version timeline keeps older versions delta encoded and also answers as-of queries
+	AdaptiveRadixTree<TradeVersionTimeline> tradeData = new AdaptiveRadixTree<>(TradeVersionTimeline::getTradeId);
+
+	//Timelines with versions which are not expired yet, by the lowest maturity date of those versions,
+	//so that expiry does not need to scan all the trades
+	TreeMap<Long, List<TradeVersionTimeline>> unexpiredTimelinesByMaturity = new TreeMap<>();
 
 	@Override
-	//Add a trade to the database (here - in-memory TreeSet)
+	//Add a trade to the database (here - in-memory radix tree), existing trade with same tradeId and version is kept
 	public synchronized void addTrade(Trade theTrade) {
-		tradeData.add(theTrade);		
+		TradeVersionTimeline timeline = tradeData.computeIfAbsent(theTrade.getTradeId(), TradeVersionTimeline::new);
+		if (!timeline.containsVersion(theTrade.getTradeVersion())) {
+			timeline.put(theTrade);
+			indexMaturity(timeline);
+		}
 	}
 
 	@Override
-	//Update the existing trade in the database (here - in-memory TreeSet) 
+	//Update the existing trade in the database (here - in-memory radix tree)
 	public synchronized void updateTrade(Trade oldTrade, Trade newTrade) {
-		tradeData.remove(oldTrade);
-		tradeData.add(newTrade);		
+		TradeVersionTimeline timeline = tradeData.get(oldTrade.getTradeId());
+		if (timeline != null && timeline.remove(oldTrade.getTradeVersion()) != null) {
+			indexMaturity(timeline);
+			if (timeline.size() == 0) {
+				tradeData.remove(oldTrade.getTradeId());
+			}
+		}
+		addTrade(newTrade);
+	}
+
+	@Override
+	//Compare and set is atomic as it is done under the DAO monitor, callers do not need any lock between read and write
+	public synchronized boolean upsertVersioned(Trade theTrade, int expectedLatestVersion) {
+		Trade existingTrade = getTradeByIdLatestVersion(theTrade.getTradeId());
+		int latestVersion = existingTrade == null ? NO_VERSION : existingTrade.getTradeVersion();
+		if (latestVersion != expectedLatestVersion || theTrade.getTradeVersion() < latestVersion) {
+			return false;
+		}
+		if (latestVersion == theTrade.getTradeVersion()) {
+			updateTrade(existingTrade, theTrade);
+		} else {
+			addTrade(theTrade);
+		}
+		return true;
 	}
 
 	@Override
 	//Return copy of the data, Do not expose original data store outside of DAO.
+	//Data is already sorted so copy is a list in tradeId (ascending), tradeVersion (descending) order
+	//Latest versions are the stored trades, older versions are rebuilt from their deltas
 	public synchronized Collection<Trade> getAllTrades() {
-		TreeSet<Trade> copyData = new TreeSet<>();
-		copyData.addAll(tradeData);
+		List<Trade> copyData = new ArrayList<>();
+		tradeData.forEachValue(timeline -> timeline.addAllVersions(copyData));
 		return copyData;
 	}
 
 	@Override
-	//Get the latest trade by version Id from the database (here - in-memory TreeSet) 
+	//Only the subtree of the prefix is visited
+	public synchronized Collection<Trade> findTradesByIdPrefix(String tradeIdPrefix) {
+		List<Trade> trades = new ArrayList<>();
+		tradeData.forEachValueWithPrefix(tradeIdPrefix, timeline -> timeline.addAllVersions(trades));
+		return trades;
+	}
+
+	@Override
+	public synchronized Collection<Trade> findTradesByIdRange(String fromTradeId, String toTradeId) {
+		List<Trade> trades = new ArrayList<>();
+		tradeData.forEachValueInRange(fromTradeId, toTradeId, timeline -> timeline.addAllVersions(trades));
+		return trades;
+	}
+
+	@Override
+	//Get the latest trade by version Id from the database (here - in-memory radix tree)
 	public synchronized Trade getTradeByIdLatestVersion(String tradeId) {		
-		//As TreeSet data structure is used and it is already sorted, findFrist will provide the latest version
-		Trade returnTrade = tradeData.stream().filter( trade -> trade.getTradeId().equals(tradeId) ).findFirst().orElse(null);				
-		return returnTrade;
+		TradeVersionTimeline timeline = tradeData.get(tradeId);
+		return timeline == null ? null : timeline.latest();
 	}
 
 	@Override
-	//Find trades where maturity date is less than input parameter
+	//Find trades where maturity date is less than input parameter, versions are unique so no set is needed
 	public synchronized Collection<Trade> findTradesLessThanMaturityDate(long maturityDateTs) {		
-		//As TreeSet data structure is used and it is already sorted, findFrist will provide the latest version
-		Set<Trade> returnList = tradeData.stream().filter( trade -> trade.getMaturityDateTimeStamp() < maturityDateTs ).collect(Collectors.toSet());				
+		List<Trade> returnList = new ArrayList<>();
+		tradeData.forEachValue(timeline -> timeline.addVersionsMaturingBefore(maturityDateTs, returnList));
 		return returnList;
 	}
+
+	@Override
+	//Binary search over the checkpoints of the version timeline of the trade
+	public synchronized Trade getTradeAsOf(String tradeId, long asOfTs) {
+		TradeVersionTimeline timeline = tradeData.get(tradeId);
+		return timeline == null ? null : timeline.asOf(asOfTs);
+	}
+
+	@Override
+	//One as-of lookup per tradeId, action is called under the DAO monitor so it should be quick
+	public synchronized void forEachTradeAsOf(long asOfTs, Consumer<? super Trade> action) {
+		tradeData.forEachValue(timeline -> {
+			Trade trade = timeline.asOf(asOfTs);
+			if (trade != null) {
+				action.accept(trade);
+			}
+		});
+	}
+
+	@Override
+	//Expire trades in place, only timelines in the maturity index below maturityDateTs are visited
+	//Timeline with versions left unexpired is indexed again by the lowest maturity of those versions
+	public synchronized int expireTradesMaturingBefore(long maturityDateTs, int maxTrades, Collection<String> expiredTradeIds) {
+		int expiredCount = 0;
+		while (expiredCount < maxTrades && !unexpiredTimelinesByMaturity.isEmpty()) {
+			Long maturity = unexpiredTimelinesByMaturity.firstKey();
+			if (maturity >= maturityDateTs) {
+				break;
+			}
+			List<TradeVersionTimeline> timelines = unexpiredTimelinesByMaturity.get(maturity);
+			TradeVersionTimeline timeline = timelines.get(timelines.size() - 1);
+			expiredCount += timeline.expireMaturingBefore(maturityDateTs, maxTrades - expiredCount, expiredTradeIds);
+			indexMaturity(timeline);
+		}
+		return expiredCount;
+	}
+
+	@Override
+	//Count from the maturity index, only the requested maturity range is visited
+	public synchronized int[] getMaturityProfile(long fromTs, long bucketMillis, int bucketCount) {
+		int[] profile = new int[bucketCount];
+		long toTs = TradeDao.maturityProfileEnd(fromTs, bucketMillis, bucketCount);
+		//Timeline is indexed by its lowest maturity, its other versions may mature in the range
+		for (List<TradeVersionTimeline> timelines : unexpiredTimelinesByMaturity.headMap(toTs, false).values()) {
+			for (TradeVersionTimeline timeline : timelines) {
+				timeline.countUnexpiredMaturities(fromTs, toTs, bucketMillis, profile);
+			}
+		}
+		return profile;
+	}
+
+	//Index the timeline by the lowest maturity of its versions which are not expired yet, after any change of the timeline
+	//Versions maturing at NO_MATURITY (Long.MAX_VALUE) never expire and are not indexed
+	//Boxed key is kept by the timeline, so that expiry does not box maturities
+	private void indexMaturity(TradeVersionTimeline timeline) {
+		long maturity = timeline.minUnexpiredMaturity();
+		Long indexedMaturity = timeline.indexedMaturity;
+		if (indexedMaturity != null && indexedMaturity == maturity) {
+			return;
+		}
+		if (indexedMaturity != null) {
+			List<TradeVersionTimeline> timelines = unexpiredTimelinesByMaturity.get(indexedMaturity);
+			//Remove by identity
+			for (int i = timelines.size() - 1; i >= 0; i--) {
+				if (timelines.get(i) == timeline) {
+					timelines.remove(i);
+					break;
+				}
+			}
+			if (timelines.isEmpty()) {
+				unexpiredTimelinesByMaturity.remove(indexedMaturity);
+			}
+			timeline.indexedMaturity = null;
+		}
+		if (maturity != TradeVersionTimeline.NO_MATURITY) {
+			Long key = maturity;
+			unexpiredTimelinesByMaturity.computeIfAbsent(key, newKey -> new ArrayList<>(1)).add(timeline);
+			timeline.indexedMaturity = key;
+		}
+	}
 }
@@ -0,0 +1,615 @@
+/**
+* Trade DAO implementation for SQL database using plain JDBC
+* Tested with embedded H2, SQL uses standard MERGE so it can be ported to other databases
+* Keeps a Bloom filter of stored tradeIds, lookups of tradeIds which were never stored (most of the new trades)
+* are answered without a database round trip
+* Only upsertVersioned takes the lock row of the tradeId, so it is atomic against other upsertVersioned calls only.
+* addTrade, updateTrade and addTrades write without it - do not mix them with versioned writes of the same tradeIds
+* (TradeService writes with upsertVersioned only)
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import org.pmk.demo.trade.exception.DataAccessException;
+import org.pmk.demo.trade.model.Trade;
+
+public class JdbcTradeDao implements TradeDao {
+
+	public static final int DEFAULT_COMMIT_GROUP_SIZE = 500;
+	public static final int DEFAULT_FILTER_INITIAL_CAPACITY = 1 << 16;
+	public static final double DEFAULT_FILTER_FALSE_POSITIVE_PROBABILITY = 0.01;
+
+	private static final String EXCEPTION_COMMIT_GROUP_SIZE = "Commit group size must be greater than zero";
+
+	private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS TRADE ("
+			+ "TRADE_ID VARCHAR(64) NOT NULL, "
+			+ "TRADE_VERSION INT NOT NULL, "
+			+ "COUNTER_PARTY_ID VARCHAR(64), "
+			+ "BOOK_ID VARCHAR(64), "
+			+ "MATURITY_TS BIGINT NOT NULL, "
+			+ "CREATED_TS BIGINT NOT NULL, "
+			+ "EXPIRED BOOLEAN NOT NULL, "
+			+ "PRIMARY KEY (TRADE_ID, TRADE_VERSION))";
+	//Maturity sweep is a range query on MATURITY_TS
+	private static final String CREATE_MATURITY_INDEX = "CREATE INDEX IF NOT EXISTS TRADE_MATURITY_IDX ON TRADE (MATURITY_TS)";
+	//As-of queries - book as of T is a range query on CREATED_TS, its newer version check is a lookup by TRADE_ID and CREATED_TS
+	private static final String CREATE_CREATED_INDEX = "CREATE INDEX IF NOT EXISTS TRADE_CREATED_IDX ON TRADE (CREATED_TS)";
+	private static final String CREATE_ID_CREATED_INDEX = "CREATE INDEX IF NOT EXISTS TRADE_ID_CREATED_IDX ON TRADE (TRADE_ID, CREATED_TS)";
+	//One row per tradeId written by upsertVersioned, locked while its latest version is compared and set
+	//TRADE has no row to lock before the first version of a trade is written, so the lock lives in its own table
+	private static final String CREATE_VERSION_LOCK_TABLE = "CREATE TABLE IF NOT EXISTS TRADE_VERSION_LOCK ("
+			+ "TRADE_ID VARCHAR(64) NOT NULL PRIMARY KEY)";
+
+	private static final String COLUMNS = "TRADE_ID, TRADE_VERSION, COUNTER_PARTY_ID, BOOK_ID, MATURITY_TS, CREATED_TS, EXPIRED";
+
+	//Upsert keyed on (TRADE_ID, TRADE_VERSION) together with latest version check, so it is a single round trip
+	//A trade is never written when a higher version of it already exists
+	private static final String UPSERT = "MERGE INTO TRADE T USING (VALUES (CAST(? AS VARCHAR(64)), CAST(? AS INT), "
+			+ "CAST(? AS VARCHAR(64)), CAST(? AS VARCHAR(64)), CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS BOOLEAN))) "
+			+ "S (" + COLUMNS + ") "
+			+ "ON (T.TRADE_ID = S.TRADE_ID AND T.TRADE_VERSION = S.TRADE_VERSION) "
+			+ "WHEN MATCHED AND NOT EXISTS (SELECT 1 FROM TRADE X WHERE X.TRADE_ID = S.TRADE_ID AND X.TRADE_VERSION > S.TRADE_VERSION) "
+			+ "THEN UPDATE SET COUNTER_PARTY_ID = S.COUNTER_PARTY_ID, BOOK_ID = S.BOOK_ID, MATURITY_TS = S.MATURITY_TS, "
+			+ "CREATED_TS = S.CREATED_TS, EXPIRED = S.EXPIRED "
+			+ "WHEN NOT MATCHED AND NOT EXISTS (SELECT 1 FROM TRADE X WHERE X.TRADE_ID = S.TRADE_ID AND X.TRADE_VERSION > S.TRADE_VERSION) "
+			+ "THEN INSERT (" + COLUMNS + ") VALUES (S.TRADE_ID, S.TRADE_VERSION, S.COUNTER_PARTY_ID, S.BOOK_ID, "
+			+ "S.MATURITY_TS, S.CREATED_TS, S.EXPIRED)";
+	//Compare and set of the latest version - lock row of the tradeId is locked for the transaction, created by the first one
+	private static final String INSERT_VERSION_LOCK = "MERGE INTO TRADE_VERSION_LOCK L USING (VALUES (CAST(? AS VARCHAR(64)))) S (TRADE_ID) "
+			+ "ON (L.TRADE_ID = S.TRADE_ID) WHEN NOT MATCHED THEN INSERT (TRADE_ID) VALUES (S.TRADE_ID)";
+	private static final String LOCK_VERSION = "SELECT TRADE_ID FROM TRADE_VERSION_LOCK WHERE TRADE_ID = ? FOR UPDATE";
+	private static final String SELECT_LATEST_VERSION = "SELECT MAX(TRADE_VERSION) FROM TRADE WHERE TRADE_ID = ?";
+	//SQLState class of integrity constraint violations, e.g. lock row inserted by another writer at the same time
+	private static final String SQL_STATE_INTEGRITY_CONSTRAINT = "23";
+	private static final String DELETE = "DELETE FROM TRADE WHERE TRADE_ID = ? AND TRADE_VERSION = ?";
+	private static final String SELECT_ALL = "SELECT " + COLUMNS + " FROM TRADE ORDER BY TRADE_ID ASC, TRADE_VERSION DESC";
+	private static final String SELECT_LATEST = "SELECT " + COLUMNS + " FROM TRADE WHERE TRADE_ID = ? "
+			+ "ORDER BY TRADE_VERSION DESC FETCH FIRST 1 ROWS ONLY";
+	//Prefix and range scans use the primary key index on TRADE_ID
+	private static final String SELECT_BY_ID_PREFIX = "SELECT " + COLUMNS + " FROM TRADE WHERE TRADE_ID LIKE ? ESCAPE '\\' "
+			+ "ORDER BY TRADE_ID ASC, TRADE_VERSION DESC";
+	private static final String SELECT_BY_ID_RANGE = "SELECT " + COLUMNS + " FROM TRADE WHERE TRADE_ID >= ? AND TRADE_ID < ? "
+			+ "ORDER BY TRADE_ID ASC, TRADE_VERSION DESC";
+	private static final String SELECT_BY_ID_FROM = "SELECT " + COLUMNS + " FROM TRADE WHERE TRADE_ID >= ? "
+			+ "ORDER BY TRADE_ID ASC, TRADE_VERSION DESC";
+	//Row of a version created later is returned only when no version existed as of T, so an absent tradeId can be told apart
+	private static final String SELECT_AS_OF = "SELECT " + COLUMNS + ", CASE WHEN CREATED_TS <= ? THEN 1 ELSE 0 END AS EXISTED "
+			+ "FROM TRADE WHERE TRADE_ID = ? ORDER BY EXISTED DESC, TRADE_VERSION DESC FETCH FIRST 1 ROWS ONLY";
+	private static final String SELECT_BOOK_AS_OF = "SELECT " + COLUMNS + " FROM TRADE T WHERE T.CREATED_TS <= ? "
+			+ "AND NOT EXISTS (SELECT 1 FROM TRADE X WHERE X.TRADE_ID = T.TRADE_ID AND X.TRADE_VERSION > T.TRADE_VERSION AND X.CREATED_TS <= ?) "
+			+ "ORDER BY T.TRADE_ID ASC";
+	private static final int AS_OF_FETCH_SIZE = 1000;
+	private static final String SELECT_MATURITY_LESS_THAN = "SELECT " + COLUMNS + " FROM TRADE WHERE MATURITY_TS < ?";
+	private static final String SELECT_EXPIRING_KEYS = "SELECT TRADE_ID, TRADE_VERSION FROM TRADE WHERE MATURITY_TS < ? AND EXPIRED = FALSE "
+			+ "ORDER BY MATURITY_TS FETCH FIRST ? ROWS ONLY FOR UPDATE";
+	private static final String EXPIRE_MATURITY_LESS_THAN = "UPDATE TRADE SET EXPIRED = TRUE WHERE MATURITY_TS < ? AND EXPIRED = FALSE";
+	private static final String EXPIRE_BY_KEY = "UPDATE TRADE SET EXPIRED = TRUE WHERE TRADE_ID = ? AND TRADE_VERSION = ?";
+	private static final String SELECT_TRADE_IDS = "SELECT DISTINCT TRADE_ID FROM TRADE";
+	private static final String SELECT_MATURITY_PROFILE = "SELECT BUCKET, COUNT(*) FROM ("
+			+ "SELECT (MATURITY_TS - ?) / ? AS BUCKET FROM TRADE WHERE MATURITY_TS >= ? AND MATURITY_TS < ? AND EXPIRED = FALSE) "
+			+ "GROUP BY BUCKET";
+
+	private final DataSource dataSource;
+	private final int commitGroupSize;
+	private final int filterInitialCapacity;
+	private final double filterFalsePositiveProbability;
+
+	//Filter of stored tradeIds, used only when ready - after it was built from the table
+	//Writers hold the read lock while adding the tradeId to the filter and writing the row,
+	//rebuild holds the write lock so that no row is written between the table scan and the filter swap
+	private volatile ScalableBloomFilter tradeIdFilter;
+	private volatile boolean tradeIdFilterReady;
+	private final ReentrantReadWriteLock tradeIdFilterLock = new ReentrantReadWriteLock();
+	private final LongAdder filterCheckCount = new LongAdder();
+	private final LongAdder filterNegativeCount = new LongAdder();
+	private final LongAdder filterFalsePositiveCount = new LongAdder();
+
+	public JdbcTradeDao(DataSource dataSource) {
+		this(dataSource, DEFAULT_COMMIT_GROUP_SIZE);
+	}
+
+	//commitGroupSize - number of rows written in one transaction by addTrades
+	public JdbcTradeDao(DataSource dataSource, int commitGroupSize) {
+		this(dataSource, commitGroupSize, DEFAULT_FILTER_INITIAL_CAPACITY, DEFAULT_FILTER_FALSE_POSITIVE_PROBABILITY);
+	}
+
+	//filterInitialCapacity, filterFalsePositiveProbability - size of the first stage of the tradeId filter, it grows with the table
+	//filterInitialCapacity 0 disables the filter
+	public JdbcTradeDao(DataSource dataSource, int commitGroupSize, int filterInitialCapacity, double filterFalsePositiveProbability) {
+		if (commitGroupSize <= 0) {
+			throw new IllegalArgumentException(EXCEPTION_COMMIT_GROUP_SIZE);
+		}
+		this.dataSource = dataSource;
+		this.commitGroupSize = commitGroupSize;
+		this.filterInitialCapacity = filterInitialCapacity;
+		this.filterFalsePositiveProbability = filterFalsePositiveProbability;
+		this.tradeIdFilter = filterInitialCapacity == 0 ? null : new ScalableBloomFilter(filterInitialCapacity, filterFalsePositiveProbability);
+	}
+
+	//Create TRADE table and its indexes if they do not exist, tradeId filter is built from the existing rows
+	public void createSchema() {
+		try (Connection connection = dataSource.getConnection();
+				Statement statement = connection.createStatement()) {
+			statement.execute(CREATE_TABLE);
+			statement.execute(CREATE_MATURITY_INDEX);
+			statement.execute(CREATE_CREATED_INDEX);
+			statement.execute(CREATE_ID_CREATED_INDEX);
+			statement.execute(CREATE_VERSION_LOCK_TABLE);
+		} catch (SQLException e) {
+			throw new DataAccessException("Failed to create TRADE schema", e);
+		}
+		rebuildTradeIdFilter();
+	}
+
+	//Recovery - build the tradeId filter from the table, call it when the table was written by anyone else than this DAO
+	//Writes wait for the rebuild, lookups go to the database until it is done
+	public void rebuildTradeIdFilter() {
+		if (tradeIdFilter == null) {
+			return;
+		}
+		tradeIdFilterLock.writeLock().lock();
+		try {
+			tradeIdFilterReady = false;
+			ScalableBloomFilter filter = new ScalableBloomFilter(filterInitialCapacity, filterFalsePositiveProbability);
+			try (Connection connection = dataSource.getConnection();
+					PreparedStatement statement = connection.prepareStatement(SELECT_TRADE_IDS)) {
+				statement.setFetchSize(AS_OF_FETCH_SIZE);
+				try (ResultSet resultSet = statement.executeQuery()) {
+					while (resultSet.next()) {
+						filter.put(resultSet.getString(1));
+					}
+				}
+			} catch (SQLException e) {
+				throw new DataAccessException("Failed to rebuild tradeId filter", e);
+			}
+			tradeIdFilter = filter;
+			tradeIdFilterReady = true;
+		} finally {
+			tradeIdFilterLock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	//Insert or replace the trade version, ignored when a higher version already exists
+	public void addTrade(Trade theTrade) {
+		tradeIdFilterLock.readLock().lock();
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement statement = connection.prepareStatement(UPSERT)) {
+			recordTradeId(theTrade.getTradeId());
+			bindUpsert(statement, theTrade);
+			statement.executeUpdate();
+		} catch (SQLException e) {
+			throw new DataAccessException("Failed to add trade " + theTrade.getTradeId(), e);
+		} finally {
+			tradeIdFilterLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	//Same key is a single upsert, otherwise old row is deleted in the same transaction
+	public void updateTrade(Trade oldTrade, Trade newTrade) {
+		if (oldTrade.compareTo(newTrade) == 0) {
+			addTrade(newTrade);
+			return;
+		}
+		tradeIdFilterLock.readLock().lock();
+		try (Connection connection = dataSource.getConnection()) {
+			recordTradeId(newTrade.getTradeId());
+			boolean autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+			try (PreparedStatement delete = connection.prepareStatement(DELETE);
+					PreparedStatement upsert = connection.prepareStatement(UPSERT)) {
+				delete.setString(1, oldTrade.getTradeId());
+				delete.setInt(2, oldTrade.getTradeVersion());
+				delete.executeUpdate();
+				bindUpsert(upsert, newTrade);
+				upsert.executeUpdate();
+				connection.commit();
+			} catch (SQLException e) {
+				connection.rollback();
+				throw e;
+			} finally {
+				connection.setAutoCommit(autoCommit);
+			}
+		} catch (SQLException e) {
+			throw new DataAccessException("Failed to update trade " + oldTrade.getTradeId(), e);
+		} finally {
+			tradeIdFilterLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	//Latest version is read and the trade is written in one transaction holding the lock row of the tradeId (SELECT ... FOR UPDATE),
+	//so concurrent writers of one tradeId are serialized and the compare and set is atomic under READ COMMITTED.
+	//A lock on the latest TRADE row or SERIALIZABLE isolation is not enough - the first version of a trade has no row to lock
+	//and not every database (e.g. H2) detects two inserts of different versions as a serialization conflict
+	//Lock row is written only by the first compare and set of the tradeId, later ones only lock it
+	//Plain writes (addTrade, updateTrade, addTrades) do not take the lock row
+	public boolean upsertVersioned(Trade theTrade, int expectedLatestVersion) {
+		if (theTrade.getTradeVersion() < expectedLatestVersion) {
+			return false;
+		}
+		tradeIdFilterLock.readLock().lock();
+		try (Connection connection = dataSource.getConnection()) {
+			recordTradeId(theTrade.getTradeId());
+			boolean autoCommit = connection.getAutoCommit();
+			try {
+				connection.setAutoCommit(false);
+				try (PreparedStatement lock = connection.prepareStatement(LOCK_VERSION);
+						PreparedStatement latest = connection.prepareStatement(SELECT_LATEST_VERSION);
+						PreparedStatement upsert = connection.prepareStatement(UPSERT)) {
+					lock.setString(1, theTrade.getTradeId());
+					if (!lockVersion(lock)) {
+						//Switching to auto-commit ends the empty transaction, lock row is committed on its own and then locked
+						connection.setAutoCommit(true);
+						insertVersionLock(connection, theTrade.getTradeId());
+						connection.setAutoCommit(false);
+						lockVersion(lock);
+					}
+					latest.setString(1, theTrade.getTradeId());
+					int latestVersion;
+					try (ResultSet resultSet = latest.executeQuery()) {
+						resultSet.next();
+						latestVersion = resultSet.getInt(1);
+						if (resultSet.wasNull()) {
+							latestVersion = NO_VERSION;
+						}
+					}
+					if (latestVersion != expectedLatestVersion) {
+						connection.rollback();
+						return false;
+					}
+					bindUpsert(upsert, theTrade);
+					upsert.executeUpdate();
+					connection.commit();
+					return true;
+				} catch (SQLException e) {
+					connection.rollback();
+					throw e;
+				}
+			} finally {
+				connection.setAutoCommit(autoCommit);
+			}
+		} catch (SQLException e) {
+			throw new DataAccessException("Failed to upsert trade " + theTrade.getTradeId(), e);
+		} finally {
+			tradeIdFilterLock.readLock().unlock();
+		}
+	}
+
+	//Bulk upsert using JDBC batch, one commit every commitGroupSize rows
+	//Returns number of rows written (stale versions are not written)
+	public int addTrades(Collection<Trade> trades) {
+		int written = 0;
+		tradeIdFilterLock.readLock().lock();
+		try (Connection connection = dataSource.getConnection()) {
+			boolean autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+			try (PreparedStatement statement = connection.prepareStatement(UPSERT)) {
+				int batched = 0;
+				for (Trade trade : trades) {
+					recordTradeId(trade.getTradeId());
+					bindUpsert(statement, trade);
+					statement.addBatch();
+					if (++batched == commitGroupSize) {
+						written += executeBatchAndCommit(connection, statement);
+						batched = 0;
+					}
+				}
+				if (batched > 0) {
+					written += executeBatchAndCommit(connection, statement);
+				}
+			} catch (SQLException e) {
+				connection.rollback();
+				throw e;
+			} finally {
+				connection.setAutoCommit(autoCommit);
+			}
+		} catch (SQLException e) {
+			throw new DataAccessException("Failed to add trades", e);
+		} finally {
+			tradeIdFilterLock.readLock().unlock();
+		}
+		return written;
+	}
+
+	@Override
+	//Sorted by tradeId (ascending) and then tradeVersion (descending) by the database
+	public Collection<Trade> getAllTrades() {
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement statement = connection.prepareStatement(SELECT_ALL)) {
+			return query(statement);
+		} catch (SQLException e) {
+			throw new DataAccessException("Failed to read trades", e);
+		}
+	}
+
+	@Override
+	//Tried in the tradeId filter first, definitely absent tradeId is not looked up in the database
+	public Trade getTradeByIdLatestVersion(String tradeId) {
+		if (isDefinitelyAbsent(tradeId)) {
+			return null;
+		}
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement statement = connection.prepareStatement(SELECT_LATEST)) {
+			statement.setString(1, tradeId);
+			List<Trade> trades = query(statement);
+			return found(trades.isEmpty() ? null : trades.get(0));
+		} catch (SQLException e) {
+			throw new DataAccessException("Failed to read trade " + tradeId, e);
+		}
+	}
+
+	@Override
+	public Collection<Trade> findTradesByIdPrefix(String tradeIdPrefix) {
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement statement = connection.prepareStatement(SELECT_BY_ID_PREFIX)) {
+			statement.setString(1, escapeLike(tradeIdPrefix) + "%");
+			return query(statement);
+		} catch (SQLException e) {
+			throw new DataAccessException("Failed to read trades with tradeId prefix " + tradeIdPrefix, e);
+		}
+	}
+
+	@Override
+	public Collection<Trade> findTradesByIdRange(String fromTradeId, String toTradeId) {
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement statement = connection.prepareStatement(toTradeId == null ? SELECT_BY_ID_FROM : SELECT_BY_ID_RANGE)) {
+			statement.setString(1, fromTradeId == null ? "" : fromTradeId);
+			if (toTradeId != null) {
+				statement.setString(2, toTradeId);
+			}
+			return query(statement);
+		} catch (SQLException e) {
+			throw new DataAccessException("Failed to read trades with tradeId from " + fromTradeId + " to " + toTradeId, e);
+		}
+	}
+
+	@Override
+	//Tried in the tradeId filter first, a lookup which passed the filter is a false positive only when the tradeId has no rows
+	public Trade getTradeAsOf(String tradeId, long asOfTs) {
+		if (isDefinitelyAbsent(tradeId)) {
+			return null;
+		}
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement statement = connection.prepareStatement(SELECT_AS_OF)) {
+			statement.setLong(1, asOfTs);
+			statement.setString(2, tradeId);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				if (!resultSet.next()) {
+					return found(null);
+				}
+				//Otherwise the trade exists, but it was created after asOfTs
+				return resultSet.getInt(8) == 1 ? toTrade(resultSet) : null;
+			}
+		} catch (SQLException e) {
+			throw new DataAccessException("Failed to read trade " + tradeId + " as of " + asOfTs, e);
+		}
+	}
+
+	@Override
+	//Rows are streamed to the action, the whole book is never loaded into memory
+	public void forEachTradeAsOf(long asOfTs, Consumer<? super Trade> action) {
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement statement = connection.prepareStatement(SELECT_BOOK_AS_OF)) {
+			statement.setLong(1, asOfTs);
+			statement.setLong(2, asOfTs);
+			statement.setFetchSize(AS_OF_FETCH_SIZE);
+			try (ResultSet resultSet = statement.executeQuery()) {
+				while (resultSet.next()) {
+					action.accept(toTrade(resultSet));
+				}
+			}
+		} catch (SQLException e) {
+			throw new DataAccessException("Failed to read book as of " + asOfTs, e);
+		}
+	}
+
+	@Override
+	//Index range scan on MATURITY_TS
+	public Collection<Trade> findTradesLessThanMaturityDate(long maturityDateTs) {
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement statement = connection.prepareStatement(SELECT_MATURITY_LESS_THAN)) {
+			statement.setLong(1, maturityDateTs);
+			return query(statement);
+		} catch (SQLException e) {
+			throw new DataAccessException("Failed to read trades by maturity date", e);
+		}
+	}
+
+	@Override
+	//Set expired flag with one set-based UPDATE, trades are not loaded into Java
+	//When ids are needed or the number of trades is limited the keys are locked with SELECT ... FOR UPDATE
+	//and updated by key in one batch, in the same transaction. A limit inside an IN subquery of the UPDATE
+	//is not portable (e.g. MySQL rejects it)
+	public int expireTradesMaturingBefore(long maturityDateTs, int maxTrades, Collection<String> expiredTradeIds) {
+		try (Connection connection = dataSource.getConnection()) {
+			if (expiredTradeIds == null && maxTrades == Integer.MAX_VALUE) {
+				try (PreparedStatement statement = connection.prepareStatement(EXPIRE_MATURITY_LESS_THAN)) {
+					statement.setLong(1, maturityDateTs);
+					return statement.executeUpdate();
+				}
+			}
+			boolean autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+			try (PreparedStatement select = connection.prepareStatement(SELECT_EXPIRING_KEYS);
+					PreparedStatement update = connection.prepareStatement(EXPIRE_BY_KEY)) {
+				List<String> tradeIds = expiredTradeIds == null ? null : new ArrayList<>();
+				select.setLong(1, maturityDateTs);
+				select.setInt(2, maxTrades);
+				try (ResultSet resultSet = select.executeQuery()) {
+					while (resultSet.next()) {
+						if (tradeIds != null) {
+							tradeIds.add(resultSet.getString(1));
+						}
+						update.setString(1, resultSet.getString(1));
+						update.setInt(2, resultSet.getInt(2));
+						update.addBatch();
+					}
+				}
+				int expiredCount = executeBatchAndCommit(connection, update);
+				if (tradeIds != null) {
+					expiredTradeIds.addAll(tradeIds);
+				}
+				return expiredCount;
+			} catch (SQLException e) {
+				connection.rollback();
+				throw e;
+			} finally {
+				connection.setAutoCommit(autoCommit);
+			}
+		} catch (SQLException e) {
+			throw new DataAccessException("Failed to expire trades", e);
+		}
+	}
+
+	@Override
+	//Counted by the database using the maturity index, only one row per non empty bucket is returned
+	public int[] getMaturityProfile(long fromTs, long bucketMillis, int bucketCount) {
+		int[] profile = new int[bucketCount];
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement statement = connection.prepareStatement(SELECT_MATURITY_PROFILE)) {
+			statement.setLong(1, fromTs);
+			statement.setLong(2, bucketMillis);
+			statement.setLong(3, fromTs);
+			statement.setLong(4, TradeDao.maturityProfileEnd(fromTs, bucketMillis, bucketCount));
+			try (ResultSet resultSet = statement.executeQuery()) {
+				while (resultSet.next()) {
+					profile[(int) resultSet.getLong(1)] = resultSet.getInt(2);
+				}
+			}
+		} catch (SQLException e) {
+			throw new DataAccessException("Failed to read maturity profile", e);
+		}
+		return profile;
+	}
+
+	public int getCommitGroupSize() {
+		return commitGroupSize;
+	}
+
+	//tradeId filter metrics
+	//Lookups checked in the filter
+	public long getFilterCheckCount() {
+		return filterCheckCount.sum();
+	}
+	//Lookups answered by the filter without the database
+	public long getFilterNegativeCount() {
+		return filterNegativeCount.sum();
+	}
+	//Lookups (latest version and as-of) which passed the filter but whose tradeId was not found in the database
+	public long getFilterFalsePositiveCount() {
+		return filterFalsePositiveCount.sum();
+	}
+	//Observed false positive rate - share of absent tradeIds which the filter did not catch
+	public double getFilterFalsePositiveRate() {
+		long falsePositives = filterFalsePositiveCount.sum();
+		long absent = falsePositives + filterNegativeCount.sum();
+		return absent == 0 ? 0 : (double) falsePositives / absent;
+	}
+	//null when the filter is disabled
+	public ScalableBloomFilter getTradeIdFilter() {
+		return tradeIdFilter;
+	}
+
+	//true when the lock row exists and is now locked by the transaction
+	private static boolean lockVersion(PreparedStatement lock) throws SQLException {
+		try (ResultSet resultSet = lock.executeQuery()) {
+			return resultSet.next();
+		}
+	}
+
+	//Committed on its own, a writer which loses the race to create the lock row uses the row of the winner
+	private static void insertVersionLock(Connection connection, String tradeId) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement(INSERT_VERSION_LOCK)) {
+			statement.setString(1, tradeId);
+			statement.executeUpdate();
+		} catch (SQLException e) {
+			if (e.getSQLState() == null || !e.getSQLState().startsWith(SQL_STATE_INTEGRITY_CONSTRAINT)) {
+				throw e;
+			}
+		}
+	}
+
+	private void recordTradeId(String tradeId) {
+		ScalableBloomFilter filter = tradeIdFilter;
+		if (filter != null) {
+			filter.put(tradeId);
+		}
+	}
+
+	private boolean isDefinitelyAbsent(String tradeId) {
+		if (!tradeIdFilterReady) {
+			return false;
+		}
+		filterCheckCount.increment();
+		if (!tradeIdFilter.mightContain(tradeId)) {
+			filterNegativeCount.increment();
+			return true;
+		}
+		return false;
+	}
+
+	//Trade found by a lookup which passed the filter
+	private Trade found(Trade trade) {
+		if (trade == null && tradeIdFilterReady) {
+			filterFalsePositiveCount.increment();
+		}
+		return trade;
+	}
+
+	private static int executeBatchAndCommit(Connection connection, PreparedStatement statement) throws SQLException {
+		int written = 0;
+		for (int count : statement.executeBatch()) {
+			//Drivers may report SUCCESS_NO_INFO instead of row count
+			written += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+		}
+		connection.commit();
+		return written;
+	}
+
+	private static void bindUpsert(PreparedStatement statement, Trade trade) throws SQLException {
+		statement.setString(1, trade.getTradeId());
+		statement.setInt(2, trade.getTradeVersion());
+		statement.setString(3, trade.getCounterPartyId());
+		statement.setString(4, trade.getBookId());
+		statement.setLong(5, trade.getMaturityDateTimeStamp());
+		statement.setLong(6, trade.getCreatedDateTimeStamp());
+		statement.setBoolean(7, trade.isExpired());
+	}
+
+	private static List<Trade> query(PreparedStatement statement) throws SQLException {
+		List<Trade> trades = new ArrayList<>();
+		try (ResultSet resultSet = statement.executeQuery()) {
+			while (resultSet.next()) {
+				trades.add(toTrade(resultSet));
+			}
+		}
+		return trades;
+	}
+
+	private static String escapeLike(String value) {
+		return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+	}
+
+	private static Trade toTrade(ResultSet resultSet) throws SQLException {
+		return Trade.createTrade(resultSet.getString(1), resultSet.getInt(2), resultSet.getString(3),
+				resultSet.getString(4), resultSet.getLong(6), resultSet.getLong(5), resultSet.getBoolean(7));
+	}
+}
@@ -0,0 +1,189 @@
+/**
+* Scalable Bloom filter of Strings (Almeida et al.) - answers "definitely not present" or "maybe present"
+* Filter is a list of stages, each a plain Bloom filter. When the last stage is full a new stage is added with
+* GROWTH_FACTOR times the capacity and half the false positive probability, so the total false positive probability
+* stays below twice the one of the first stage however many keys are added.
+* Bits are set with CAS on AtomicLongArray, so put and mightContain are lock free, only adding a stage is synchronized.
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.dao;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class ScalableBloomFilter {
+
+	public static final int GROWTH_FACTOR = 2;
+	//False positive probability of every next stage is this ratio of the previous one
+	public static final double TIGHTENING_RATIO = 0.5;
+
+	//Keeps bit array of a stage within AtomicLongArray limits
+	private static final int MAX_STAGE_CAPACITY = 1 << 27;
+	private static final String EXCEPTION_CAPACITY = "Bloom filter capacity must be greater than zero";
+	private static final String EXCEPTION_PROBABILITY = "Bloom filter false positive probability must be between 0 and 1";
+	private static final double LN2 = Math.log(2);
+
+	private final int initialCapacity;
+	private final double falsePositiveProbability;
+	private volatile Stage[] stages;
+
+	//initialCapacity - keys in the first stage, falsePositiveProbability - of the first stage
+	public ScalableBloomFilter(int initialCapacity, double falsePositiveProbability) {
+		if (initialCapacity <= 0) {
+			throw new IllegalArgumentException(EXCEPTION_CAPACITY);
+		}
+		if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+			throw new IllegalArgumentException(EXCEPTION_PROBABILITY);
+		}
+		this.initialCapacity = initialCapacity;
+		this.falsePositiveProbability = falsePositiveProbability;
+		this.stages = new Stage[] {new Stage(initialCapacity, falsePositiveProbability)};
+	}
+
+	//Returns true when the key was not (maybe) present before
+	public boolean put(String key) {
+		long hash = hash(key);
+		if (contains(stages, hash)) {
+			return false;
+		}
+		Stage[] current = stages;
+		Stage last = current[current.length - 1];
+		last.put(hash);
+		if (last.count.incrementAndGet() >= last.capacity) {
+			addStage(current);
+		}
+		return true;
+	}
+
+	//false - key was never put, true - key was put or this is a false positive
+	public boolean mightContain(String key) {
+		return contains(stages, hash(key));
+	}
+
+	//Probability that mightContain of a key never put returns true, from the bits set so far
+	public double getExpectedFalsePositiveProbability() {
+		double allNegative = 1;
+		for (Stage stage : stages) {
+			allNegative *= 1 - Math.pow((double) stage.bitsSet.get() / stage.bitCount, stage.hashCount);
+		}
+		return 1 - allNegative;
+	}
+
+	//Target false positive probability of the first stage
+	public double getFalsePositiveProbability() {
+		return falsePositiveProbability;
+	}
+
+	public int getStageCount() {
+		return stages.length;
+	}
+
+	//Number of keys put (keys which were maybe present are not counted)
+	public long getApproximateCount() {
+		long count = 0;
+		for (Stage stage : stages) {
+			count += stage.count.get();
+		}
+		return count;
+	}
+
+	public long getSizeInBytes() {
+		long bytes = 0;
+		for (Stage stage : stages) {
+			bytes += (long) stage.bits.length() * Long.BYTES;
+		}
+		return bytes;
+	}
+
+	private synchronized void addStage(Stage[] current) {
+		if (stages != current) {
+			//Another thread has already added the stage
+			return;
+		}
+		Stage last = current[current.length - 1];
+		Stage[] grown = new Stage[current.length + 1];
+		System.arraycopy(current, 0, grown, 0, current.length);
+		int capacity = (int) Math.min((long) last.capacity * GROWTH_FACTOR, Math.max(MAX_STAGE_CAPACITY, initialCapacity));
+		grown[current.length] = new Stage(capacity, last.falsePositiveProbability * TIGHTENING_RATIO);
+		stages = grown;
+	}
+
+	private static boolean contains(Stage[] stages, long hash) {
+		for (int i = stages.length - 1; i >= 0; i--) {
+			if (stages[i].mightContain(hash)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	//64 bit hash of the chars (FNV-1a mixed with murmur3 finalizer), String.hashCode is too weak for double hashing
+	static long hash(String key) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < key.length(); i++) {
+			hash ^= key.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	//One Bloom filter, bit i of hash j is (h1 + j * h2) mod bitCount (Kirsch and Mitzenmacher double hashing)
+	private static final class Stage {
+		private final int capacity;
+		private final double falsePositiveProbability;
+		private final long bitCount;
+		private final int hashCount;
+		private final AtomicLongArray bits;
+		private final AtomicInteger count = new AtomicInteger();
+		private final AtomicInteger bitsSet = new AtomicInteger();
+
+		Stage(int capacity, double falsePositiveProbability) {
+			this.capacity = capacity;
+			this.falsePositiveProbability = falsePositiveProbability;
+			long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveProbability) / (LN2 * LN2));
+			int words = (int) Math.max(1, (optimalBits + 63) / 64);
+			this.bitCount = words * 64L;
+			this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * LN2));
+			this.bits = new AtomicLongArray(words);
+		}
+
+		void put(long hash) {
+			int h1 = (int) hash;
+			int h2 = (int) (hash >>> 32);
+			for (int i = 0; i < hashCount; i++) {
+				long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+				int word = (int) (bit >>> 6);
+				long mask = 1L << bit;
+				long value;
+				do {
+					value = bits.get(word);
+					if ((value & mask) != 0) {
+						break;
+					}
+				} while (!bits.compareAndSet(word, value, value | mask));
+				if ((value & mask) == 0) {
+					bitsSet.incrementAndGet();
+				}
+			}
+		}
+
+		boolean mightContain(long hash) {
+			int h1 = (int) hash;
+			int h2 = (int) (hash >>> 32);
+			for (int i = 0; i < hashCount; i++) {
+				long bit = Math.floorMod(h1 + (long) i * h2, bitCount);
+				if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -6,14 +6,116 @@
 */
 package org.pmk.demo.trade.dao;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 import org.pmk.demo.trade.model.Trade;
 
 public interface TradeDao {
+	//Expected latest version when trade does not exist yet
+	public static final int NO_VERSION = Integer.MIN_VALUE;
+
 	public void addTrade(Trade theTrade);
 	public void updateTrade(Trade oldTrade, Trade newTrade);
 	public Collection<Trade> getAllTrades();
 	public Trade getTradeByIdLatestVersion (String tradeId);
 	Collection<Trade> findTradesLessThanMaturityDate(long maturityDateTs);
+
+	//Optimistic concurrency - compare and set of the latest version
+	//Atomically writes the trade (replaces same version or adds new version) only if the current latest version is expectedLatestVersion
+	//(NO_VERSION when trade does not exist) and trade version is not lower than it. Returns false on conflict, caller re-reads and retries.
+	public boolean upsertVersioned(Trade theTrade, int expectedLatestVersion);
+
+	//All versions of trades whose tradeId starts with the prefix, or is in [fromTradeId, toTradeId), in Trade compareTo order
+	//Range bound can be null for an open range
+	//Default implementations filter getAllTrades, implementations should override them with an index lookup
+	public default Collection<Trade> findTradesByIdPrefix(String tradeIdPrefix) {
+		List<Trade> trades = new ArrayList<>();
+		for (Trade trade : getAllTrades()) {
+			if (trade.getTradeId().startsWith(tradeIdPrefix)) {
+				trades.add(trade);
+			}
+		}
+		Collections.sort(trades);
+		return trades;
+	}
+
+	public default Collection<Trade> findTradesByIdRange(String fromTradeId, String toTradeId) {
+		List<Trade> trades = new ArrayList<>();
+		for (Trade trade : getAllTrades()) {
+			if ((fromTradeId == null || trade.getTradeId().compareTo(fromTradeId) >= 0)
+					&& (toTradeId == null || trade.getTradeId().compareTo(toTradeId) < 0)) {
+				trades.add(trade);
+			}
+		}
+		Collections.sort(trades);
+		return trades;
+	}
+
+	//Historical (as-of) queries - state of a trade as of a time is its highest version created at or before that time
+	//Default implementations filter getAllTrades, implementations should override them with an index lookup
+	public default Trade getTradeAsOf(String tradeId, long asOfTs) {
+		Trade asOfTrade = null;
+		for (Trade trade : getAllTrades()) {
+			if (trade.getTradeId().equals(tradeId) && trade.getCreatedDateTimeStamp() <= asOfTs
+					&& (asOfTrade == null || trade.getTradeVersion() > asOfTrade.getTradeVersion())) {
+				asOfTrade = trade;
+			}
+		}
+		return asOfTrade;
+	}
+
+	//Streaming as-of scan of the whole book in tradeId (ascending) order, one trade per tradeId which existed at asOfTs
+	public default void forEachTradeAsOf(long asOfTs, Consumer<? super Trade> action) {
+		TreeMap<String, Trade> book = new TreeMap<>();
+		for (Trade trade : getAllTrades()) {
+			if (trade.getCreatedDateTimeStamp() <= asOfTs) {
+				book.merge(trade.getTradeId(), trade,
+						(first, second) -> first.getTradeVersion() >= second.getTradeVersion() ? first : second);
+			}
+		}
+		book.values().forEach(action);
+	}
+
+	public default Collection<Trade> getBookAsOf(long asOfTs) {
+		List<Trade> book = new ArrayList<>();
+		forEachTradeAsOf(asOfTs, book::add);
+		return book;
+	}
+
+	//Mark trades with maturity date less than input parameter as expired, in the store itself
+	//At most maxTrades trades are expired (earliest maturity first) so that large batches can be split into chunks
+	//Returns number of trades expired by this call, ids of those trades are added to expiredTradeIds when it is not null
+	public int expireTradesMaturingBefore(long maturityDateTs, int maxTrades, Collection<String> expiredTradeIds);
+
+	public default int expireTradesMaturingBefore(long maturityDateTs, Collection<String> expiredTradeIds) {
+		return expireTradesMaturingBefore(maturityDateTs, Integer.MAX_VALUE, expiredTradeIds);
+	}
+
+	public default int expireTradesMaturingBefore(long maturityDateTs) {
+		return expireTradesMaturingBefore(maturityDateTs, Integer.MAX_VALUE, null);
+	}
+
+	//Number of trades not expired yet per maturity bucket, bucket i covers [fromTs + i*bucketMillis, fromTs + (i+1)*bucketMillis)
+	//Default implementation filters findTradesLessThanMaturityDate, implementations should override it with an index lookup
+	public default int[] getMaturityProfile(long fromTs, long bucketMillis, int bucketCount) {
+		int[] profile = new int[bucketCount];
+		long toTs = maturityProfileEnd(fromTs, bucketMillis, bucketCount);
+		for (Trade trade : findTradesLessThanMaturityDate(toTs)) {
+			if (!trade.isExpired() && trade.getMaturityDateTimeStamp() >= fromTs) {
+				profile[(int) ((trade.getMaturityDateTimeStamp() - fromTs) / bucketMillis)]++;
+			}
+		}
+		return profile;
+	}
+
+	//End (exclusive) of the last maturity profile bucket, capped to avoid long overflow
+	public static long maturityProfileEnd(long fromTs, long bucketMillis, int bucketCount) {
+		long span = bucketMillis * bucketCount;
+		return fromTs > Long.MAX_VALUE - span ? Long.MAX_VALUE : fromTs + span;
+	}
 }
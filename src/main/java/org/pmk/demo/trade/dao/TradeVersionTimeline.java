@@ -0,0 +1,619 @@
+/**
+* All versions of one trade, sorted by tradeVersion (ascending)
+* Latest version is kept as the Trade object, older versions are kept as field level deltas in one packed byte array,
+* as an amendment usually changes one or two fields. Older versions are rebuilt on demand.
+* Deltas are relative to a copy of the latest version, so changes the caller makes to the latest Trade do not reach older versions.
+* Older versions are returned as copies - changing them (e.g. setExpired) does not change the timeline.
+* Delta records are in descending version order, every record is relative to the next higher version:
+*   flags byte - expired flag of the version and the fields which differ
+*   tradeVersion gap (varint), createdDateTimeStamp and maturityDateTimeStamp differences (zigzag varint),
+*   counterPartyId and bookId (length + 1 as varint, 0 is null, then UTF-8 bytes)
+* Every CHECKPOINT_INTERVAL older versions (a block) keep a checkpoint - the walk state at the top of the block and the lowest
+* createdDateTimeStamp of the block and the blocks above it. Version and as-of lookups binary search the checkpoints
+* and walk at most one block - O(log versions). Amendment adds a record in front.
+* Not thread safe, guarded by the owning DAO
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.dao;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+import org.pmk.demo.trade.model.Trade;
+
+final class TradeVersionTimeline {
+
+	//Returned by minUnexpiredMaturity when all versions are expired
+	static final long NO_MATURITY = Long.MAX_VALUE;
+
+	private static final int EXPIRED = 1;
+	private static final int VERSION_GAP = 1 << 1;
+	private static final int CREATED_CHANGED = 1 << 2;
+	private static final int MATURITY_CHANGED = 1 << 3;
+	private static final int COUNTER_PARTY_CHANGED = 1 << 4;
+	private static final int BOOK_CHANGED = 1 << 5;
+	private static final byte[] NO_DELTAS = new byte[0];
+	//Versions in a block, a lookup walks at most one block
+	static final int CHECKPOINT_INTERVAL = 8;
+	//Checkpoint longs - record position counted from the end of deltas and tradeVersion, created, maturity,
+	//string positions counted from the end of deltas (0 - string of the latest version), lowest created of the block and blocks above
+	private static final int CHECKPOINT_LONGS = 5;
+	private static final long[] NO_CHECKPOINTS = new long[0];
+
+	private final String tradeId;
+	private Trade latest;
+	//Copy of the latest version taken when older versions were encoded against it, null when there are no older versions
+	private Trade base;
+	private byte[] deltas = NO_DELTAS;
+	//Checkpoint m is the walk state of version (m + 1) * CHECKPOINT_INTERVAL, above the top of block m,
+	//kept once every version of the block is older than the latest. Positions from the end do not move when a record is put in front
+	private long[] checkpoints = NO_CHECKPOINTS;
+	private int size;
+	private long minUnexpiredMaturity = NO_MATURITY;
+
+	//Key of the timeline in the maturity index of the owning DAO, null when not indexed
+	Long indexedMaturity;
+
+	TradeVersionTimeline(String tradeId) {
+		this.tradeId = tradeId;
+	}
+
+	String getTradeId() {
+		return tradeId;
+	}
+
+	int size() {
+		return size;
+	}
+
+	//Version at index, 0 is the lowest version
+	Trade get(int index) {
+		int checkpoint = index / CHECKPOINT_INTERVAL;
+		Cursor cursor = checkpoint < checkpointCount() ? new Cursor(this, checkpoint) : new Cursor(this);
+		while (cursor.index > index) {
+			cursor.next();
+		}
+		return cursor.toTrade();
+	}
+
+	Trade latest() {
+		return latest;
+	}
+
+	Trade getVersion(int tradeVersion) {
+		Cursor cursor = find(tradeVersion);
+		return cursor == null ? null : cursor.toTrade();
+	}
+
+	boolean containsVersion(int tradeVersion) {
+		return find(tradeVersion) != null;
+	}
+
+	//Add the version or replace the same version, returns replaced trade
+	Trade put(Trade trade) {
+		if (size == 0) {
+			latest = trade;
+			size = 1;
+			minUnexpiredMaturity = trade.isExpired() ? NO_MATURITY : trade.getMaturityDateTimeStamp();
+			return null;
+		}
+		//Amendment - previous latest version becomes the first delta record,
+		//unless the caller changed it and the records below are relative to its copy
+		if (trade.getTradeVersion() > latest.getTradeVersion() && (base == null || sameFields(latest, base))) {
+			ByteArrayOutputStream record = new ByteArrayOutputStream(deltas.length + 16);
+			encode(record, latest, trade);
+			record.write(deltas, 0, deltas.length);
+			deltas = record.toByteArray();
+			latest = trade;
+			base = copyOf(trade);
+			size++;
+			if (!trade.isExpired()) {
+				minUnexpiredMaturity = Math.min(minUnexpiredMaturity, trade.getMaturityDateTimeStamp());
+			}
+			if ((size - 1) % CHECKPOINT_INTERVAL == 0) {
+				indexCheckpoints();
+			} else {
+				amendCheckpoints();
+			}
+			return null;
+		}
+		Trade[] versions = toArray(1);
+		int index = indexOf(versions, size, trade.getTradeVersion());
+		if (index >= 0) {
+			Trade replaced = versions[index];
+			versions[index] = trade;
+			rebuild(versions, size);
+			return replaced;
+		}
+		index = -index - 1;
+		System.arraycopy(versions, index, versions, index + 1, size - index);
+		versions[index] = trade;
+		rebuild(versions, size + 1);
+		return null;
+	}
+
+	//Remove the version, returns removed trade
+	Trade remove(int tradeVersion) {
+		if (find(tradeVersion) == null) {
+			return null;
+		}
+		Trade[] versions = toArray(0);
+		int index = indexOf(versions, size, tradeVersion);
+		Trade removed = versions[index];
+		System.arraycopy(versions, index + 1, versions, index, size - index - 1);
+		rebuild(versions, size - 1);
+		return removed;
+	}
+
+	//Highest version created at or before asOfTs, null when trade did not exist at that time
+	//A version created later hides lower versions, so this is the first version created at or before asOfTs from the latest down
+	//Versions above the checkpointed blocks are walked, then the highest block with a version created at or before asOfTs
+	//is binary searched - lowest created of the block and blocks above is non-decreasing by block
+	Trade asOf(long asOfTs) {
+		if (size == 0) {
+			return null;
+		}
+		int checkpointCount = checkpointCount();
+		int lowestUnblocked = checkpointCount * CHECKPOINT_INTERVAL;
+		Cursor cursor = new Cursor(this);
+		do {
+			if (cursor.created <= asOfTs) {
+				return cursor.toTrade();
+			}
+		} while (cursor.index > lowestUnblocked && cursor.next());
+		int low = 0;
+		int high = checkpointCount - 1;
+		int found = -1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (checkpoints[mid * CHECKPOINT_LONGS + 4] <= asOfTs) {
+				found = mid;
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		if (found < 0) {
+			return null;
+		}
+		cursor = new Cursor(this, found);
+		do {
+			if (cursor.created <= asOfTs) {
+				return cursor.toTrade();
+			}
+		} while (cursor.next());
+		return null;
+	}
+
+	//All versions in tradeVersion (descending) order
+	void addAllVersions(List<Trade> trades) {
+		if (size <= 1) {
+			if (size == 1) {
+				trades.add(latest);
+			}
+			return;
+		}
+		Cursor cursor = new Cursor(this);
+		do {
+			trades.add(cursor.toTrade());
+		} while (cursor.next());
+	}
+
+	void addVersionsMaturingBefore(long maturityDateTs, Collection<Trade> trades) {
+		if (size == 0) {
+			return;
+		}
+		Cursor cursor = new Cursor(this);
+		do {
+			if (cursor.maturity < maturityDateTs) {
+				trades.add(cursor.toTrade());
+			}
+		} while (cursor.next());
+	}
+
+	//Expire at most maxTrades versions maturing before maturityDateTs, returns number of versions expired
+	//Trade which was never amended is expired without walking the deltas
+	int expireMaturingBefore(long maturityDateTs, int maxTrades, Collection<String> expiredTradeIds) {
+		if (size == 0) {
+			return 0;
+		}
+		if (size == 1) {
+			int expiredCount = 0;
+			if (!latest.isExpired() && latest.getMaturityDateTimeStamp() < maturityDateTs && maxTrades > 0) {
+				latest.setExpired(true);
+				expiredCount++;
+				if (expiredTradeIds != null) {
+					expiredTradeIds.add(tradeId);
+				}
+			}
+			minUnexpiredMaturity = latest.isExpired() ? NO_MATURITY : latest.getMaturityDateTimeStamp();
+			return expiredCount;
+		}
+		int expiredCount = 0;
+		long minMaturity = NO_MATURITY;
+		Cursor cursor = new Cursor(this);
+		do {
+			if (!cursor.expired && cursor.maturity < maturityDateTs && expiredCount < maxTrades) {
+				cursor.setExpired();
+				expiredCount++;
+				if (expiredTradeIds != null) {
+					expiredTradeIds.add(tradeId);
+				}
+			}
+			if (!cursor.expired) {
+				minMaturity = Math.min(minMaturity, cursor.maturity);
+			}
+		} while (cursor.next());
+		minUnexpiredMaturity = minMaturity;
+		return expiredCount;
+	}
+
+	//Lowest maturity of the versions not expired yet, NO_MATURITY when there is none
+	long minUnexpiredMaturity() {
+		return minUnexpiredMaturity;
+	}
+
+	//Count versions not expired yet maturing in [fromTs, toTs) into the buckets of the profile
+	void countUnexpiredMaturities(long fromTs, long toTs, long bucketMillis, int[] profile) {
+		if (size == 0 || minUnexpiredMaturity >= toTs) {
+			return;
+		}
+		Cursor cursor = new Cursor(this);
+		do {
+			if (!cursor.expired && cursor.maturity >= fromTs && cursor.maturity < toTs) {
+				profile[(int) ((cursor.maturity - fromTs) / bucketMillis)]++;
+			}
+		} while (cursor.next());
+	}
+
+	//Bytes used by the delta records
+	int getDeltaSize() {
+		return deltas.length;
+	}
+
+	//Walk starts at the lowest checkpoint above the version, checkpoint tradeVersions are ascending
+	private Cursor find(int tradeVersion) {
+		if (size == 0 || tradeVersion > latest.getTradeVersion()) {
+			return null;
+		}
+		int low = 0;
+		int high = checkpointCount() - 1;
+		int found = -1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if ((int) checkpoints[mid * CHECKPOINT_LONGS] > tradeVersion) {
+				found = mid;
+				high = mid - 1;
+			} else {
+				low = mid + 1;
+			}
+		}
+		Cursor cursor = found < 0 ? new Cursor(this) : new Cursor(this, found);
+		do {
+			if (cursor.tradeVersion == tradeVersion) {
+				return cursor;
+			}
+		} while (cursor.tradeVersion > tradeVersion && cursor.next());
+		return null;
+	}
+
+	//All versions in ascending order, with room for extra versions
+	private Trade[] toArray(int extra) {
+		Trade[] versions = new Trade[size + extra];
+		Cursor cursor = new Cursor(this);
+		do {
+			versions[cursor.index] = cursor.toTrade();
+		} while (cursor.next());
+		return versions;
+	}
+
+	private void rebuild(Trade[] versions, int count) {
+		size = count;
+		minUnexpiredMaturity = NO_MATURITY;
+		for (int i = 0; i < count; i++) {
+			if (!versions[i].isExpired()) {
+				minUnexpiredMaturity = Math.min(minUnexpiredMaturity, versions[i].getMaturityDateTimeStamp());
+			}
+		}
+		if (count == 0) {
+			latest = null;
+			base = null;
+			deltas = NO_DELTAS;
+			checkpoints = NO_CHECKPOINTS;
+			return;
+		}
+		latest = versions[count - 1];
+		base = count == 1 ? null : copyOf(latest);
+		ByteArrayOutputStream records = new ByteArrayOutputStream();
+		for (int i = count - 2; i >= 0; i--) {
+			encode(records, versions[i], versions[i + 1]);
+		}
+		deltas = records.toByteArray();
+		indexCheckpoints();
+	}
+
+	private int checkpointCount() {
+		return checkpoints.length / CHECKPOINT_LONGS;
+	}
+
+	//Checkpoints of all blocks in one walk from the latest version down
+	private void indexCheckpoints() {
+		int count = size == 0 ? 0 : (size - 1) / CHECKPOINT_INTERVAL;
+		checkpoints = count == 0 ? NO_CHECKPOINTS : new long[count * CHECKPOINT_LONGS];
+		if (count == 0) {
+			return;
+		}
+		int lowestUnblocked = count * CHECKPOINT_INTERVAL;
+		Cursor cursor = new Cursor(this);
+		long minCreated = Long.MAX_VALUE;
+		do {
+			if (cursor.index < lowestUnblocked) {
+				minCreated = Math.min(minCreated, cursor.created);
+			}
+			if (cursor.index % CHECKPOINT_INTERVAL == 0) {
+				int block = cursor.index / CHECKPOINT_INTERVAL;
+				if (block > 0 && block <= count) {
+					cursor.saveState(checkpoints, (block - 1) * CHECKPOINT_LONGS);
+				}
+				if (block < count) {
+					checkpoints[block * CHECKPOINT_LONGS + 4] = minCreated;
+				}
+			}
+		} while (cursor.next());
+	}
+
+	//Record put in front holds the strings the checkpoints took from the previous latest version
+	private void amendCheckpoints() {
+		if (checkpoints.length == 0) {
+			return;
+		}
+		Cursor front = new Cursor(this);
+		front.next();
+		long counterPartyFromEnd = front.counterPartyPosition < 0 ? 0 : deltas.length - front.counterPartyPosition;
+		long bookFromEnd = front.bookPosition < 0 ? 0 : deltas.length - front.bookPosition;
+		for (int at = 0; at < checkpoints.length; at += CHECKPOINT_LONGS) {
+			long strings = checkpoints[at + 3];
+			if ((strings >>> 32) == 0) {
+				strings |= counterPartyFromEnd << 32;
+			}
+			if ((int) strings == 0) {
+				strings |= bookFromEnd;
+			}
+			checkpoints[at + 3] = strings;
+		}
+	}
+
+	//Fields the deltas are relative to, expired flag is kept by every record
+	private static boolean sameFields(Trade trade, Trade other) {
+		return trade.getTradeVersion() == other.getTradeVersion()
+				&& trade.getCreatedDateTimeStamp() == other.getCreatedDateTimeStamp()
+				&& trade.getMaturityDateTimeStamp() == other.getMaturityDateTimeStamp()
+				&& Objects.equals(trade.getCounterPartyId(), other.getCounterPartyId())
+				&& Objects.equals(trade.getBookId(), other.getBookId());
+	}
+
+	private static Trade copyOf(Trade trade) {
+		return Trade.createTrade(trade.getTradeId(), trade.getTradeVersion(), trade.getCounterPartyId(), trade.getBookId(),
+				trade.getCreatedDateTimeStamp(), trade.getMaturityDateTimeStamp(), trade.isExpired());
+	}
+
+	private static int indexOf(Trade[] versions, int count, int tradeVersion) {
+		int low = 0;
+		int high = count - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int midVersion = versions[mid].getTradeVersion();
+			if (midVersion < tradeVersion) {
+				low = mid + 1;
+			} else if (midVersion > tradeVersion) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -(low + 1);
+	}
+
+	//Delta record of the older version relative to the next higher version
+	private static void encode(ByteArrayOutputStream out, Trade older, Trade newer) {
+		long versionGap = (long) newer.getTradeVersion() - older.getTradeVersion() - 1;
+		long createdDelta = older.getCreatedDateTimeStamp() - newer.getCreatedDateTimeStamp();
+		long maturityDelta = older.getMaturityDateTimeStamp() - newer.getMaturityDateTimeStamp();
+		boolean counterPartyChanged = !Objects.equals(older.getCounterPartyId(), newer.getCounterPartyId());
+		boolean bookChanged = !Objects.equals(older.getBookId(), newer.getBookId());
+		int flags = (older.isExpired() ? EXPIRED : 0)
+				| (versionGap != 0 ? VERSION_GAP : 0)
+				| (createdDelta != 0 ? CREATED_CHANGED : 0)
+				| (maturityDelta != 0 ? MATURITY_CHANGED : 0)
+				| (counterPartyChanged ? COUNTER_PARTY_CHANGED : 0)
+				| (bookChanged ? BOOK_CHANGED : 0);
+		out.write(flags);
+		if (versionGap != 0) {
+			writeVarLong(out, versionGap);
+		}
+		if (createdDelta != 0) {
+			writeVarLong(out, zigzag(createdDelta));
+		}
+		if (maturityDelta != 0) {
+			writeVarLong(out, zigzag(maturityDelta));
+		}
+		if (counterPartyChanged) {
+			writeString(out, older.getCounterPartyId());
+		}
+		if (bookChanged) {
+			writeString(out, older.getBookId());
+		}
+	}
+
+	private static void writeVarLong(ByteArrayOutputStream out, long value) {
+		while ((value & ~0x7FL) != 0) {
+			out.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	private static void writeString(ByteArrayOutputStream out, String value) {
+		if (value == null) {
+			writeVarLong(out, 0);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarLong(out, bytes.length + 1L);
+		out.write(bytes, 0, bytes.length);
+	}
+
+	//Small differences of either sign are encoded in few bytes
+	private static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	//Walks the versions from the latest one down, strings are only located and decoded when the version is rebuilt
+	private static final class Cursor {
+		private final TradeVersionTimeline timeline;
+		private final byte[] deltas;
+		private int index;
+		private int position;
+		//Position of the flags of the current version, -1 for the latest version
+		private int flagsPosition = -1;
+		private int tradeVersion;
+		private long created;
+		private long maturity;
+		private boolean expired;
+		//Position of the string of the current version, -1 when it is the one of the latest version
+		private int counterPartyPosition = -1;
+		private int bookPosition = -1;
+
+		Cursor(TradeVersionTimeline timeline) {
+			this.timeline = timeline;
+			this.deltas = timeline.deltas;
+			Trade latest = timeline.latest;
+			this.index = timeline.size - 1;
+			this.tradeVersion = latest.getTradeVersion();
+			this.created = latest.getCreatedDateTimeStamp();
+			this.maturity = latest.getMaturityDateTimeStamp();
+			this.expired = latest.isExpired();
+		}
+
+		//Starts at the top version of the block of the checkpoint
+		Cursor(TradeVersionTimeline timeline, int checkpoint) {
+			this.timeline = timeline;
+			this.deltas = timeline.deltas;
+			long[] checkpoints = timeline.checkpoints;
+			int at = checkpoint * CHECKPOINT_LONGS;
+			this.index = (checkpoint + 1) * CHECKPOINT_INTERVAL;
+			this.position = deltas.length - (int) (checkpoints[at] >>> 32);
+			this.tradeVersion = (int) checkpoints[at];
+			this.created = checkpoints[at + 1];
+			this.maturity = checkpoints[at + 2];
+			int counterPartyFromEnd = (int) (checkpoints[at + 3] >>> 32);
+			int bookFromEnd = (int) checkpoints[at + 3];
+			this.counterPartyPosition = counterPartyFromEnd == 0 ? -1 : deltas.length - counterPartyFromEnd;
+			this.bookPosition = bookFromEnd == 0 ? -1 : deltas.length - bookFromEnd;
+			next();
+		}
+
+		//Walk state of the current version, positions are counted from the end of deltas
+		//Latest version state is taken from the copy the deltas are relative to
+		void saveState(long[] checkpoints, int at) {
+			boolean atLatest = index == timeline.size - 1;
+			Trade base = timeline.base;
+			checkpoints[at] = (long) (deltas.length - position) << 32 | ((atLatest ? base.getTradeVersion() : tradeVersion) & 0xFFFFFFFFL);
+			checkpoints[at + 1] = atLatest ? base.getCreatedDateTimeStamp() : created;
+			checkpoints[at + 2] = atLatest ? base.getMaturityDateTimeStamp() : maturity;
+			checkpoints[at + 3] = (long) (counterPartyPosition < 0 ? 0 : deltas.length - counterPartyPosition) << 32
+					| (bookPosition < 0 ? 0 : deltas.length - bookPosition);
+		}
+
+		//Move to the next lower version, false when this is the lowest version
+		boolean next() {
+			if (index == 0) {
+				return false;
+			}
+			if (index == timeline.size - 1) {
+				//Deltas are relative to the copy of the latest version, the caller may have changed the latest Trade
+				Trade base = timeline.base;
+				tradeVersion = base.getTradeVersion();
+				created = base.getCreatedDateTimeStamp();
+				maturity = base.getMaturityDateTimeStamp();
+			}
+			index--;
+			flagsPosition = position;
+			int flags = deltas[position++];
+			expired = (flags & EXPIRED) != 0;
+			tradeVersion = (int) (tradeVersion - 1 - ((flags & VERSION_GAP) != 0 ? readVarLong() : 0));
+			if ((flags & CREATED_CHANGED) != 0) {
+				created += unzigzag(readVarLong());
+			}
+			if ((flags & MATURITY_CHANGED) != 0) {
+				maturity += unzigzag(readVarLong());
+			}
+			if ((flags & COUNTER_PARTY_CHANGED) != 0) {
+				counterPartyPosition = position;
+				skipString();
+			}
+			if ((flags & BOOK_CHANGED) != 0) {
+				bookPosition = position;
+				skipString();
+			}
+			return true;
+		}
+
+		//Latest version is returned as it is, older versions are rebuilt
+		Trade toTrade() {
+			if (flagsPosition < 0) {
+				return timeline.latest;
+			}
+			Trade base = timeline.base;
+			String counterPartyId = counterPartyPosition < 0 ? base.getCounterPartyId() : readString(counterPartyPosition);
+			String bookId = bookPosition < 0 ? base.getBookId() : readString(bookPosition);
+			return Trade.createTrade(timeline.tradeId, tradeVersion, counterPartyId, bookId, created, maturity, expired);
+		}
+
+		void setExpired() {
+			expired = true;
+			if (flagsPosition < 0) {
+				timeline.latest.setExpired(true);
+			} else {
+				deltas[flagsPosition] |= EXPIRED;
+			}
+		}
+
+		private long readVarLong() {
+			long value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = deltas[position++];
+				value |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			return value;
+		}
+
+		private void skipString() {
+			long lengthPlusOne = readVarLong();
+			if (lengthPlusOne > 0) {
+				position += (int) (lengthPlusOne - 1);
+			}
+		}
+
+		private String readString(int stringPosition) {
+			int savedPosition = position;
+			position = stringPosition;
+			long lengthPlusOne = readVarLong();
+			String value = lengthPlusOne == 0 ? null : new String(deltas, position, (int) (lengthPlusOne - 1), StandardCharsets.UTF_8);
+			position = savedPosition;
+			return value;
+		}
+	}
+}
@@ -0,0 +1,42 @@
+/**
+* AdmissionRejectedException when admission control sheds a TradeService request
+* Unchecked as it is a transient overload, caller may retry later. Rejection code tells why the request was shed.
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.exception;
+
+import org.pmk.demo.trade.admission.TradeLane;
+
+public class AdmissionRejectedException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public enum RejectionCode {
+		//Lane is at its concurrency limit and its queue is full
+		CONCURRENCY_LIMIT,
+		//Request waited in the lane queue longer than the lane allows
+		QUEUE_TIMEOUT,
+		//Thread was interrupted while waiting in the lane queue
+		INTERRUPTED
+	}
+
+	private final TradeLane lane;
+	private final RejectionCode rejectionCode;
+
+	public AdmissionRejectedException(TradeLane lane, RejectionCode rejectionCode) {
+		super("Request rejected by admission control, lane " + lane + ": " + rejectionCode);
+		this.lane = lane;
+		this.rejectionCode = rejectionCode;
+	}
+
+	public TradeLane getLane() {
+		return lane;
+	}
+
+	public RejectionCode getRejectionCode() {
+		return rejectionCode;
+	}
+
+}
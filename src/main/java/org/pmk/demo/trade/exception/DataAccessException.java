@@ -0,0 +1,18 @@
+/**
+* DataAccessException when the backing store of a TradeDao fails
+* Unchecked as callers cannot recover from it, original exception is kept as the cause
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.exception;
+
+public class DataAccessException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public DataAccessException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+}
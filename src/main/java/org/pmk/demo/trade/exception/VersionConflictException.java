@@ -0,0 +1,33 @@
+/**
+* VersionConflictException when a trade could not be stored because other writers kept changing the same tradeId
+* It is contention, not an invalid trade - the same trade may be submitted again.
+* Extends ValidationException so that callers which do not care about the difference keep working.
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.exception;
+
+public class VersionConflictException extends ValidationException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String tradeId;
+	private final int attempts;
+
+	public VersionConflictException(String message, String tradeId, int attempts) {
+		super(message);
+		this.tradeId = tradeId;
+		this.attempts = attempts;
+	}
+
+	public String getTradeId() {
+		return tradeId;
+	}
+
+	//Number of compare and set attempts which lost to another writer
+	public int getAttempts() {
+		return attempts;
+	}
+
+}
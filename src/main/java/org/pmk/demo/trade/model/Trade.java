@@ -70,9 +70,17 @@ public class Trade implements Comparable<Trade> {
 	
 	//hashCode, equals and toString
 	@Override
+	//Same value as Objects.hash of the fields, without boxing them into an array
 	public int hashCode() {
-		return Objects.hash(bookId, counterPartyId, createdDateTimeStamp, expired, maturityDateTimeStamp, tradeId,
-				tradeVersion);
+		int result = 1;
+		result = 31 * result + Objects.hashCode(bookId);
+		result = 31 * result + Objects.hashCode(counterPartyId);
+		result = 31 * result + Long.hashCode(createdDateTimeStamp);
+		result = 31 * result + Boolean.hashCode(expired);
+		result = 31 * result + Long.hashCode(maturityDateTimeStamp);
+		result = 31 * result + Objects.hashCode(tradeId);
+		result = 31 * result + Integer.hashCode(tradeVersion);
+		return result;
 	}	
 	@Override
 	public boolean equals(Object otherTradeObj) {		
@@ -0,0 +1,89 @@
+/**
+* Result of a trade replay - throughput, addNewTrade latency percentiles and end state checksum
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.replay;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+public class ReplayReport {
+	private final int eventCount;
+	private final int acceptedCount;
+	private final int rejectedCount;
+	private final long expiredCount;
+	private final long simulatedMillis;
+	private final long wallNanos;
+	//Sorted latencies of addNewTrade in nanoseconds
+	private final long[] latencyNanos;
+	private final int tradeCount;
+	private final long checksum;
+
+	public ReplayReport(int eventCount, int acceptedCount, int rejectedCount, long expiredCount, long simulatedMillis,
+			long wallNanos, long[] latencyNanos, int tradeCount, long checksum) {
+		this.eventCount = eventCount;
+		this.acceptedCount = acceptedCount;
+		this.rejectedCount = rejectedCount;
+		this.expiredCount = expiredCount;
+		this.simulatedMillis = simulatedMillis;
+		this.wallNanos = wallNanos;
+		this.latencyNanos = latencyNanos.clone();
+		Arrays.sort(this.latencyNanos);
+		this.tradeCount = tradeCount;
+		this.checksum = checksum;
+	}
+
+	//Getters
+	public int getEventCount() {
+		return eventCount;
+	}
+	public int getAcceptedCount() {
+		return acceptedCount;
+	}
+	public int getRejectedCount() {
+		return rejectedCount;
+	}
+	public long getExpiredCount() {
+		return expiredCount;
+	}
+	public long getSimulatedMillis() {
+		return simulatedMillis;
+	}
+	public long getWallNanos() {
+		return wallNanos;
+	}
+	public int getTradeCount() {
+		return tradeCount;
+	}
+	//CRC32 of all the trades in the store at the end of replay, same log must always give the same checksum
+	public long getChecksum() {
+		return checksum;
+	}
+
+	//Trades replayed per second of wall clock time
+	public double getThroughputPerSecond() {
+		return wallNanos == 0 ? 0 : eventCount * (double) TimeUnit.SECONDS.toNanos(1) / wallNanos;
+	}
+
+	//Latency percentile (0 - 100) of addNewTrade in nanoseconds
+	public long getLatencyPercentileNanos(double percentile) {
+		if (latencyNanos.length == 0) {
+			return 0;
+		}
+		int index = (int) Math.ceil(percentile / 100 * latencyNanos.length) - 1;
+		return latencyNanos[Math.max(0, Math.min(latencyNanos.length - 1, index))];
+	}
+
+	@Override
+	public String toString() {
+		return "ReplayReport [events=" + eventCount + ", accepted=" + acceptedCount + ", rejected=" + rejectedCount
+				+ ", expired=" + expiredCount + ", simulatedMillis=" + simulatedMillis
+				+ ", wallMillis=" + TimeUnit.NANOSECONDS.toMillis(wallNanos)
+				+ ", throughputPerSecond=" + Math.round(getThroughputPerSecond())
+				+ ", p50Nanos=" + getLatencyPercentileNanos(50) + ", p99Nanos=" + getLatencyPercentileNanos(99)
+				+ ", p999Nanos=" + getLatencyPercentileNanos(99.9) + ", maxNanos=" + getLatencyPercentileNanos(100)
+				+ ", trades=" + tradeCount + ", checksum=" + Long.toHexString(checksum) + "]";
+	}
+}
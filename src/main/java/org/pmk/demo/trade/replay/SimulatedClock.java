@@ -0,0 +1,69 @@
+/**
+* Clock which is moved forward by the caller instead of following real time
+* Used to replay recorded trade flow faster than real time
+* Clocks returned by withZone share the simulated time of this clock
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.replay;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+public class SimulatedClock extends Clock {
+
+	private static final String EXCEPTION_BACKWARDS = "Simulated clock cannot go backwards";
+
+	private final TimeSource time;
+	private final ZoneId zone;
+
+	//Simulated time shared by the clock and its zoned copies
+	private static final class TimeSource {
+		private volatile long currentMillis;
+	}
+
+	public SimulatedClock(long startMillis) {
+		this(new TimeSource(), ZoneOffset.UTC);
+		time.currentMillis = startMillis;
+	}
+
+	private SimulatedClock(TimeSource time, ZoneId zone) {
+		this.time = time;
+		this.zone = zone;
+	}
+
+	//Move the clock to the given time, it never goes backwards
+	public void setMillis(long millis) {
+		if (millis < time.currentMillis) {
+			throw new IllegalArgumentException(EXCEPTION_BACKWARDS);
+		}
+		time.currentMillis = millis;
+	}
+
+	@Override
+	public long millis() {
+		return time.currentMillis;
+	}
+
+	@Override
+	public Instant instant() {
+		return Instant.ofEpochMilli(time.currentMillis);
+	}
+
+	@Override
+	public ZoneId getZone() {
+		return zone;
+	}
+
+	@Override
+	//Time zone is only used for display purpose, the returned clock moves together with this clock
+	public Clock withZone(ZoneId zone) {
+		if (zone.equals(this.zone)) {
+			return this;
+		}
+		return new SimulatedClock(time, zone);
+	}
+}
@@ -0,0 +1,184 @@
+/**
+* Replay harness for recorded trade flow
+* Trades from the log are sent through TradeService using simulated time, expiry scheduler is driven by the same simulated time,
+* so a recorded day can be replayed at any speed (or as fast as possible) with the same end state.
+* Log format - one trade per line: createdTs,tradeId,tradeVersion,counterPartyId,bookId,maturityTs (lines starting with # are ignored)
+* Trades must be in createdTs order, createdTs is the time when the trade was received.
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.replay;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.pmk.demo.trade.dao.InMemoryTradeDao;
+import org.pmk.demo.trade.dao.TradeDao;
+import org.pmk.demo.trade.exception.ValidationException;
+import org.pmk.demo.trade.model.Trade;
+import org.pmk.demo.trade.service.TradeExpiryScheduler;
+import org.pmk.demo.trade.service.TradeService;
+import org.pmk.demo.trade.validations.TradeMaturityDateValidator;
+import org.pmk.demo.trade.validations.TradeVersionValidator;
+
+public class TradeReplay {
+
+	//Speed is simulated milliseconds per real millisecond, 0 means no pacing at all
+	public static final double AS_FAST_AS_POSSIBLE = 0;
+	public static final long DEFAULT_EXPIRY_MIN_DELAY_MILLIS = 1000;
+	public static final long DEFAULT_EXPIRY_MAX_DELAY_MILLIS = 10000;
+
+	private static final String RECORD_SEPARATOR = ",";
+	private static final String COMMENT_PREFIX = "#";
+	private static final int RECORD_FIELDS = 6;
+	private static final String EXCEPTION_INVALID_RECORD = "Invalid trade record at line ";
+	private static final String EXCEPTION_NOT_IN_ORDER = "Trade log is not in time order at line ";
+
+	private final SimulatedClock clock = new SimulatedClock(0);
+	private final TradeService tradeService;
+	private final TradeExpiryScheduler expiryScheduler;
+	private final double speed;
+
+	public TradeReplay(TradeDao tradeDao, double speed) {
+		this(tradeDao, speed, DEFAULT_EXPIRY_MIN_DELAY_MILLIS, DEFAULT_EXPIRY_MAX_DELAY_MILLIS);
+	}
+
+	public TradeReplay(TradeDao tradeDao, double speed, long expiryMinDelayMillis, long expiryMaxDelayMillis) {
+		this.speed = speed;
+		this.tradeService = new TradeService(tradeDao,
+				new TradeMaturityDateValidator(new TradeVersionValidator(null), clock), clock);
+		this.expiryScheduler = new TradeExpiryScheduler(tradeService, expiryMinDelayMillis, expiryMaxDelayMillis);
+	}
+
+	//Replay the whole log, expiry scheduler runs whenever simulated time reaches its next run
+	public ReplayReport replay(Reader log) throws IOException {
+		BufferedReader reader = new BufferedReader(log);
+		long[] latencyNanos = new long[1024];
+		int eventCount = 0;
+		int acceptedCount = 0;
+		long firstEventTs = -1;
+		long eventTs = 0;
+		long nextExpiryTs = 0;
+		long wallStartNanos = System.nanoTime();
+
+		String line;
+		int lineNumber = 0;
+		while ((line = reader.readLine()) != null) {
+			lineNumber++;
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith(COMMENT_PREFIX)) {
+				continue;
+			}
+			Trade trade = parseRecord(line, lineNumber);
+			eventTs = trade.getCreatedDateTimeStamp();
+			if (firstEventTs < 0) {
+				firstEventTs = eventTs;
+				nextExpiryTs = eventTs;
+				clock.setMillis(eventTs);
+			} else if (eventTs < clock.millis()) {
+				throw new IllegalArgumentException(EXCEPTION_NOT_IN_ORDER + lineNumber);
+			}
+			nextExpiryTs = runExpiryUntil(nextExpiryTs, eventTs);
+			clock.setMillis(eventTs);
+			pace(wallStartNanos, eventTs - firstEventTs);
+
+			long startNanos = System.nanoTime();
+			try {
+				tradeService.addNewTrade(trade);
+				acceptedCount++;
+			} catch (ValidationException e) {
+				//Rejected trades are part of the recorded flow
+			}
+			if (eventCount == latencyNanos.length) {
+				latencyNanos = Arrays.copyOf(latencyNanos, eventCount * 2);
+			}
+			latencyNanos[eventCount++] = System.nanoTime() - startNanos;
+		}
+		//Last expiry run at the time of the last trade
+		if (firstEventTs >= 0) {
+			runExpiryUntil(Math.min(nextExpiryTs, eventTs), eventTs);
+		}
+		long wallNanos = System.nanoTime() - wallStartNanos;
+
+		CRC32 checksum = new CRC32();
+		int tradeCount = 0;
+		for (Trade trade : tradeService.getTrades()) {
+			checksum.update((trade.toString() + "\n").getBytes(StandardCharsets.UTF_8));
+			tradeCount++;
+		}
+		return new ReplayReport(eventCount, acceptedCount, eventCount - acceptedCount, expiryScheduler.getTotalExpiredCount(),
+				firstEventTs < 0 ? 0 : eventTs - firstEventTs, wallNanos, Arrays.copyOf(latencyNanos, eventCount),
+				tradeCount, checksum.getValue());
+	}
+
+	public TradeService getTradeService() {
+		return tradeService;
+	}
+
+	public SimulatedClock getClock() {
+		return clock;
+	}
+
+	//Run expiry scheduler for every run due until the given simulated time, returns time of the next run
+	private long runExpiryUntil(long nextExpiryTs, long untilTs) {
+		while (nextExpiryTs <= untilTs) {
+			clock.setMillis(nextExpiryTs);
+			nextExpiryTs += expiryScheduler.runOnce();
+		}
+		return nextExpiryTs;
+	}
+
+	//Wait until real time catches up with simulated time divided by speed
+	private void pace(long wallStartNanos, long simulatedElapsedMillis) {
+		if (speed <= AS_FAST_AS_POSSIBLE) {
+			return;
+		}
+		long waitNanos = wallStartNanos + (long) (TimeUnit.MILLISECONDS.toNanos(simulatedElapsedMillis) / speed) - System.nanoTime();
+		if (waitNanos > 0) {
+			try {
+				TimeUnit.NANOSECONDS.sleep(waitNanos);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	//Format trade as a line of the trade log
+	public static String toRecord(Trade trade) {
+		return trade.getCreatedDateTimeStamp() + RECORD_SEPARATOR + trade.getTradeId() + RECORD_SEPARATOR + trade.getTradeVersion()
+				+ RECORD_SEPARATOR + trade.getCounterPartyId() + RECORD_SEPARATOR + trade.getBookId()
+				+ RECORD_SEPARATOR + trade.getMaturityDateTimeStamp();
+	}
+
+	public static Trade parseRecord(String line, int lineNumber) {
+		String[] fields = line.split(RECORD_SEPARATOR, -1);
+		if (fields.length != RECORD_FIELDS) {
+			throw new IllegalArgumentException(EXCEPTION_INVALID_RECORD + lineNumber);
+		}
+		try {
+			return Trade.createTrade(fields[1].trim(), Integer.parseInt(fields[2].trim()), fields[3].trim(), fields[4].trim(),
+					Long.parseLong(fields[0].trim()), Long.parseLong(fields[5].trim()), false);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(EXCEPTION_INVALID_RECORD + lineNumber, e);
+		}
+	}
+
+	//Usage: TradeReplay <trade log file> [speed, default as fast as possible]
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Usage: TradeReplay <trade log file> [speed]");
+			return;
+		}
+		double speed = args.length > 1 ? Double.parseDouble(args[1]) : AS_FAST_AS_POSSIBLE;
+		try (Reader log = new FileReader(args[0])) {
+			System.out.println(new TradeReplay(new InMemoryTradeDao(), speed).replay(log));
+		}
+	}
+}
@@ -0,0 +1,333 @@
+/**
+* Partitioned Trade Service - the trade book is split into partitions by tradeId hash
+* Every partition has its own TradeService and InMemoryTradeDao owned by one worker thread, which runs validation,
+* the version check, the write and the expiry sweep of its partition. Callers submit tasks through the partition queue
+* (lock free, many producers and one consumer) and the idle worker is parked until a task arrives.
+* The DAO monitor of a partition is only ever taken by its worker, so it is never contended and partitions scale with cores.
+* Reads across partitions (getTrades) merge the sorted snapshots of all partitions.
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.service;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.pmk.demo.trade.dao.InMemoryTradeDao;
+import org.pmk.demo.trade.exception.ValidationException;
+import org.pmk.demo.trade.model.Trade;
+import org.pmk.demo.trade.validations.TradeValidator;
+
+public class PartitionedTradeService {
+
+	private static final String EXCEPTION_PARTITION_COUNT = "Partition count must be greater than zero";
+	private static final String EXCEPTION_SHUT_DOWN = "Partitioned trade service is shut down";
+
+	private final Partition[] partitions;
+	private final Clock clock;
+	private volatile long expiryHorizonMillis = TradeService.DEFAULT_EXPIRY_HORIZON_MILLIS;
+	private ScheduledExecutorService expiryScheduler;
+
+	//Work done by the worker of a partition on the TradeService of the partition
+	@FunctionalInterface
+	private interface PartitionTask<T> {
+		T run(TradeService tradeService) throws ValidationException;
+	}
+
+	//One partition per core, validators are stateless and shared by all the partitions
+	public PartitionedTradeService(TradeValidator validatorChain) {
+		this(Runtime.getRuntime().availableProcessors(), validatorChain, Clock.systemUTC());
+	}
+
+	public PartitionedTradeService(int partitionCount, TradeValidator validatorChain, Clock clock) {
+		if (partitionCount <= 0) {
+			throw new IllegalArgumentException(EXCEPTION_PARTITION_COUNT);
+		}
+		this.clock = clock;
+		this.partitions = new Partition[partitionCount];
+		for (int i = 0; i < partitionCount; i++) {
+			partitions[i] = new Partition(i, new TradeService(new InMemoryTradeDao(), validatorChain, clock));
+		}
+		for (Partition partition : partitions) {
+			partition.worker.start();
+		}
+	}
+
+	//Asynchronous add, future completes exceptionally with ValidationException when the trade is rejected
+	//Trades of one tradeId are added in the order they are submitted by one caller thread
+	public CompletableFuture<Void> submitTrade(Trade trade) {
+		return partitionOf(trade.getTradeId()).submit(tradeService -> {
+			tradeService.addNewTrade(trade);
+			return null;
+		});
+	}
+
+	//Same as TradeService.addNewTrade, waits until the partition worker has added the trade
+	public void addNewTrade(Trade trade) throws ValidationException {
+		await(submitTrade(trade));
+	}
+
+	public Trade getTradeByIdLatestVersion(String tradeId) {
+		return awaitRead(partitionOf(tradeId).submit(tradeService -> tradeService.getTradeByIdLatestVersion(tradeId)));
+	}
+
+	//Snapshot of every partition is taken by its worker, snapshots are merged in tradeId (ascending), tradeVersion (descending) order
+	public Collection<Trade> getTrades() {
+		List<CompletableFuture<Collection<Trade>>> snapshots = new ArrayList<>(partitions.length);
+		for (Partition partition : partitions) {
+			snapshots.add(partition.submit(TradeService::getTrades));
+		}
+		List<Collection<Trade>> sortedRuns = new ArrayList<>(partitions.length);
+		int size = 0;
+		for (CompletableFuture<Collection<Trade>> snapshot : snapshots) {
+			Collection<Trade> trades = awaitRead(snapshot);
+			sortedRuns.add(trades);
+			size += trades.size();
+		}
+		return merge(sortedRuns, size);
+	}
+
+	//Every partition expires its own trades, returns number of trades expired in all the partitions
+	public int updateTradeExpiry() {
+		long maturityDateTs = clock.millis() + expiryHorizonMillis;
+		List<CompletableFuture<Integer>> expiredCounts = new ArrayList<>(partitions.length);
+		for (Partition partition : partitions) {
+			expiredCounts.add(partition.submit(tradeService -> tradeService.updateTradeExpiry(maturityDateTs, Integer.MAX_VALUE)));
+		}
+		int expiredCount = 0;
+		for (CompletableFuture<Integer> partitionExpiredCount : expiredCounts) {
+			expiredCount += awaitRead(partitionExpiredCount);
+		}
+		return expiredCount;
+	}
+
+	//Fixed cadence, scheduler thread only submits the expiry tasks, the sweep itself is done by the partition workers
+	public synchronized void startTradeExpiryScheduler(long firstRunMillis, long afterEveryMillis) {
+		stopTradeExpiryScheduler();
+		expiryScheduler = new ScheduledThreadPoolExecutor(1);
+		expiryScheduler.scheduleWithFixedDelay(() -> {
+			long maturityDateTs = clock.millis() + expiryHorizonMillis;
+			for (Partition partition : partitions) {
+				partition.submit(tradeService -> tradeService.updateTradeExpiry(maturityDateTs, Integer.MAX_VALUE));
+			}
+		}, firstRunMillis, afterEveryMillis, TimeUnit.MILLISECONDS);
+	}
+
+	public synchronized void stopTradeExpiryScheduler() {
+		if (expiryScheduler != null) {
+			expiryScheduler.shutdown();
+			try {
+				expiryScheduler.awaitTermination(1000, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				//Ignore
+			}
+			expiryScheduler = null;
+		}
+	}
+
+	//Stop the workers after the tasks already submitted are done, tasks submitted later are rejected
+	//When interrupted it stops waiting for the workers and rejects the tasks still queued in every partition,
+	//so no caller is left waiting, then the interrupt flag is restored
+	public void shutdown() {
+		stopTradeExpiryScheduler();
+		for (Partition partition : partitions) {
+			partition.running = false;
+			LockSupport.unpark(partition.worker);
+		}
+		boolean interrupted = false;
+		for (Partition partition : partitions) {
+			if (!interrupted) {
+				try {
+					partition.worker.join();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			//Tasks which raced with shutdown, or were not run yet when waiting was interrupted
+			for (Task<?> task = partition.tasks.poll(); task != null; task = partition.tasks.poll()) {
+				task.reject();
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public int getPartitionCount() {
+		return partitions.length;
+	}
+
+	//Partition of the tradeId, high bits of the hash are mixed in as consecutive tradeIds differ in the last chars only
+	public int getPartitionIndex(String tradeId) {
+		int hash = tradeId.hashCode();
+		return Math.floorMod(hash ^ (hash >>> 16), partitions.length);
+	}
+
+	public Clock getClock() {
+		return clock;
+	}
+
+	public long getExpiryHorizonMillis() {
+		return expiryHorizonMillis;
+	}
+
+	public void setExpiryHorizonMillis(long expiryHorizonMillis) {
+		this.expiryHorizonMillis = expiryHorizonMillis;
+	}
+
+	private Partition partitionOf(String tradeId) {
+		return partitions[getPartitionIndex(tradeId)];
+	}
+
+	//K-way merge of the sorted snapshots, O(n log k)
+	private static Collection<Trade> merge(List<Collection<Trade>> sortedRuns, int size) {
+		List<Trade> merged = new ArrayList<>(size);
+		PriorityQueue<Cursor> cursors = new PriorityQueue<>(Math.max(1, sortedRuns.size()));
+		for (Collection<Trade> sortedRun : sortedRuns) {
+			Iterator<Trade> iterator = sortedRun.iterator();
+			if (iterator.hasNext()) {
+				cursors.add(new Cursor(iterator));
+			}
+		}
+		while (!cursors.isEmpty()) {
+			Cursor cursor = cursors.poll();
+			merged.add(cursor.head);
+			if (cursor.iterator.hasNext()) {
+				cursor.head = cursor.iterator.next();
+				cursors.add(cursor);
+			}
+		}
+		return merged;
+	}
+
+	//Unwraps the exception the task failed with
+	private static <T> T await(CompletableFuture<T> future) throws ValidationException {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof ValidationException) {
+				throw (ValidationException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+
+	//Reads and expiry do not validate trades
+	private static <T> T awaitRead(CompletableFuture<T> future) {
+		try {
+			return await(future);
+		} catch (ValidationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static final class Cursor implements Comparable<Cursor> {
+		private final Iterator<Trade> iterator;
+		private Trade head;
+
+		Cursor(Iterator<Trade> iterator) {
+			this.iterator = iterator;
+			this.head = iterator.next();
+		}
+
+		@Override
+		public int compareTo(Cursor otherCursor) {
+			return head.compareTo(otherCursor.head);
+		}
+	}
+
+	private static final class Task<T> {
+		private final PartitionTask<T> work;
+		private final CompletableFuture<T> future = new CompletableFuture<>();
+
+		Task(PartitionTask<T> work) {
+			this.work = work;
+		}
+
+		//Any failure, Errors included, completes the future, so the caller is not left waiting and the worker keeps running
+		void run(TradeService tradeService) {
+			try {
+				future.complete(work.run(tradeService));
+			} catch (Throwable e) {
+				future.completeExceptionally(e);
+			}
+		}
+
+		void reject() {
+			future.completeExceptionally(new IllegalStateException(EXCEPTION_SHUT_DOWN));
+		}
+	}
+
+	private static final class Partition implements Runnable {
+		private final TradeService tradeService;
+		private final ConcurrentLinkedQueue<Task<?>> tasks = new ConcurrentLinkedQueue<>();
+		private final Thread worker;
+		private volatile boolean running = true;
+		//Worker is about to park or is parked, producers unpark it only then
+		private volatile boolean parked;
+
+		Partition(int index, TradeService tradeService) {
+			this.tradeService = tradeService;
+			this.worker = new Thread(this, "trade-partition-" + index);
+			this.worker.setDaemon(true);
+		}
+
+		<T> CompletableFuture<T> submit(PartitionTask<T> work) {
+			Task<T> task = new Task<>(work);
+			if (!running) {
+				task.reject();
+				return task.future;
+			}
+			tasks.offer(task);
+			//Shutdown may have drained the queue after the check above, task still in the queue is then taken back
+			//Otherwise the worker or the drain of shutdown has taken it and completes it
+			if (!running && tasks.remove(task)) {
+				task.reject();
+				return task.future;
+			}
+			if (parked) {
+				LockSupport.unpark(worker);
+			}
+			return task.future;
+		}
+
+		@Override
+		//Worker loop, tasks already in the queue are done before the worker stops
+		public void run() {
+			while (true) {
+				Task<?> task = tasks.poll();
+				if (task != null) {
+					task.run(tradeService);
+				} else if (!running) {
+					return;
+				} else {
+					//Queue is checked again after parked is set, so a task offered in between is not missed
+					parked = true;
+					if (tasks.isEmpty() && running) {
+						LockSupport.park(this);
+					}
+					parked = false;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,206 @@
+/**
+* Adaptive Trade Expiry scheduler
+* Instead of fixed rate, next run is planned by looking ahead at the maturity profile of the store:
+* it runs sooner when trades are about to enter the expiry horizon and backs off (up to max delay) when idle.
+* Large expiry batches are split into chunks so that the DAO is not locked for the whole sweep.
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.service;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.pmk.demo.trade.exception.AdmissionRejectedException;
+
+public class TradeExpiryScheduler {
+
+	public static final int DEFAULT_CHUNK_SIZE = 1000;
+	public static final long DEFAULT_SLICE_MILLIS = 50;
+	public static final int DEFAULT_CLUSTER_THRESHOLD = 1000;
+
+	private static final String EXCEPTION_DELAY = "Expiry scheduler delays must be positive and min delay cannot be greater than max delay";
+	private static final String EXCEPTION_CHUNK_SIZE = "Expiry chunk size must be greater than zero";
+
+	private final TradeService tradeService;
+	private final long minDelayMillis;
+	private final long maxDelayMillis;
+	private final int chunkSize;
+	private final long sliceMillis;
+	private final int clusterThreshold;
+
+	private ScheduledExecutorService scheduler;
+
+	//Current back-off delay, doubled when there is nothing to expire within the look ahead
+	private long backOffDelayMillis;
+	private long lastRunStartMillis = -1;
+
+	//Metrics, written only by the scheduler thread
+	private volatile long runCount;
+	private volatile long totalExpiredCount;
+	private volatile int lastExpiredCount;
+	private volatile long lastSweepNanos;
+	private volatile long maxSweepNanos;
+	private volatile long lastExpiryLagMillis;
+	private volatile long maxExpiryLagMillis;
+	private volatile long nextDelayMillis;
+
+	public TradeExpiryScheduler(TradeService tradeService, long minDelayMillis, long maxDelayMillis) {
+		this(tradeService, minDelayMillis, maxDelayMillis, DEFAULT_CHUNK_SIZE, DEFAULT_SLICE_MILLIS, DEFAULT_CLUSTER_THRESHOLD);
+	}
+
+	//chunkSize - max trades expired by one DAO call
+	//sliceMillis - time budget of one run, remaining chunks are done by an immediate next run
+	//clusterThreshold - trades maturing within one min delay which are treated as a maturity cluster
+	public TradeExpiryScheduler(TradeService tradeService, long minDelayMillis, long maxDelayMillis,
+			int chunkSize, long sliceMillis, int clusterThreshold) {
+		if (minDelayMillis <= 0 || minDelayMillis > maxDelayMillis) {
+			throw new IllegalArgumentException(EXCEPTION_DELAY);
+		}
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException(EXCEPTION_CHUNK_SIZE);
+		}
+		this.tradeService = tradeService;
+		this.minDelayMillis = minDelayMillis;
+		this.maxDelayMillis = maxDelayMillis;
+		this.chunkSize = chunkSize;
+		this.sliceMillis = sliceMillis;
+		this.clusterThreshold = clusterThreshold;
+		this.backOffDelayMillis = minDelayMillis;
+	}
+
+	public synchronized void start(long firstRunMillis) {
+		stop();
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+		//Pending next run is dropped on stop, only the run in progress is waited for
+		executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+		scheduler = executor;
+		schedule(scheduler, firstRunMillis);
+	}
+
+	public synchronized void stop() {
+		if (scheduler != null) {
+			scheduler.shutdown();
+			try {
+				scheduler.awaitTermination(1000, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				//Ignore
+			}
+			scheduler = null;
+		}
+	}
+
+	//One scheduler run: expire due trades chunk by chunk and plan the next run
+	//Uses the clock of TradeService, so it can also be driven by simulated time (see TradeReplay)
+	//Returns delay of the next run in milliseconds
+	public long runOnce() {
+		long runStartMillis = tradeService.getClock().millis();
+		long startNanos = System.nanoTime();
+		long horizonTs = runStartMillis + tradeService.getExpiryHorizonMillis();
+
+		int expiredCount = 0;
+		boolean moreDue;
+		do {
+			int chunkCount = tradeService.updateTradeExpiry(horizonTs, chunkSize);
+			expiredCount += chunkCount;
+			moreDue = chunkCount == chunkSize;
+		} while (moreDue && System.nanoTime() - startNanos < TimeUnit.MILLISECONDS.toNanos(sliceMillis));
+
+		long delayMillis = moreDue ? 0 : planNextDelay(horizonTs);
+		recordRun(runStartMillis, System.nanoTime() - startNanos, expiredCount, delayMillis);
+		return delayMillis;
+	}
+
+	//Look ahead at trades which will enter the expiry horizon within max delay, in buckets of min delay
+	private long planNextDelay(long horizonTs) {
+		int bucketCount = (int) Math.max(1, (maxDelayMillis + minDelayMillis - 1) / minDelayMillis);
+		int[] profile = tradeService.getMaturityProfile(horizonTs, minDelayMillis, bucketCount);
+
+		int firstBucket = -1;
+		for (int i = 0; i < profile.length && firstBucket < 0; i++) {
+			if (profile[i] > 0) {
+				firstBucket = i;
+			}
+		}
+		if (firstBucket < 0) {
+			//Idle - back off
+			backOffDelayMillis = Math.min(maxDelayMillis, backOffDelayMillis * 2);
+			return backOffDelayMillis;
+		}
+		if (profile[firstBucket] >= clusterThreshold) {
+			//Cluster is approaching - run at min delay until it is gone
+			backOffDelayMillis = minDelayMillis;
+		}
+		//Wake up when the first trade enters the horizon - trades of bucket k mature before the end of the bucket,
+		//at its start they are not due yet
+		long untilFirstMillis = (firstBucket + 1) * minDelayMillis;
+		return Math.min(backOffDelayMillis, untilFirstMillis);
+	}
+
+	private void recordRun(long runStartMillis, long sweepNanos, int expiredCount, long delayMillis) {
+		//Trades expired by this run entered the horizon after previous run, so lag is at most time since previous run
+		long lagMillis = expiredCount > 0 && lastRunStartMillis >= 0 ? runStartMillis - lastRunStartMillis : 0;
+		lastRunStartMillis = runStartMillis;
+
+		runCount++;
+		totalExpiredCount += expiredCount;
+		lastExpiredCount = expiredCount;
+		lastSweepNanos = sweepNanos;
+		maxSweepNanos = Math.max(maxSweepNanos, sweepNanos);
+		lastExpiryLagMillis = lagMillis;
+		maxExpiryLagMillis = Math.max(maxExpiryLagMillis, lagMillis);
+		nextDelayMillis = delayMillis;
+	}
+
+	//Next run is always scheduled on the executor of the current run, so restart does not leave two chains of runs
+	private void schedule(ScheduledExecutorService executor, long delayMillis) {
+		try {
+			executor.schedule(() -> run(executor), delayMillis, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			//Scheduler is stopped
+		}
+	}
+
+	private void run(ScheduledExecutorService executor) {
+		long delayMillis = maxDelayMillis;
+		try {
+			delayMillis = runOnce();
+		} catch (AdmissionRejectedException e) {
+			//Expiry lane is shed, try again after min delay
+			delayMillis = minDelayMillis;
+		} finally {
+			schedule(executor, delayMillis);
+		}
+	}
+
+	//Metrics
+	public long getRunCount() {
+		return runCount;
+	}
+	public long getTotalExpiredCount() {
+		return totalExpiredCount;
+	}
+	public int getLastExpiredCount() {
+		return lastExpiredCount;
+	}
+	//Sweep cost - time spent expiring trades and planning next run
+	public long getLastSweepNanos() {
+		return lastSweepNanos;
+	}
+	public long getMaxSweepNanos() {
+		return maxSweepNanos;
+	}
+	//Expiry lag - upper bound of how late trades were marked as expired after entering the expiry horizon
+	public long getLastExpiryLagMillis() {
+		return lastExpiryLagMillis;
+	}
+	public long getMaxExpiryLagMillis() {
+		return maxExpiryLagMillis;
+	}
+	public long getNextDelayMillis() {
+		return nextDelayMillis;
+	}
+}
@@ -5,70 +5,301 @@ package org.pmk.demo.trade.service;
 * @version 1.0
 * @since   2023-01-21
 */
+import java.time.Clock;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
+import org.pmk.demo.trade.admission.AdmissionController;
+import org.pmk.demo.trade.admission.TradeLane;
+import org.pmk.demo.trade.aggregation.TradeAggregationEngine;
 import org.pmk.demo.trade.dao.TradeDao;
 import org.pmk.demo.trade.exception.ValidationException;
+import org.pmk.demo.trade.exception.VersionConflictException;
 import org.pmk.demo.trade.model.Trade;
 import org.pmk.demo.trade.validations.TradeValidator;
 
 
 public class TradeService {
+	//Trades maturing within this time from now are marked as expired by the expiry run
+	public static final long DEFAULT_EXPIRY_HORIZON_MILLIS = 20000;
+	public static final int MAX_VERSION_CONFLICT_RETRIES = 16;
+	
+	private static final String TRADE_VERSION_CONFLICT = "Trade is being modified concurrently, please retry";
+
 	private TradeValidator validatorChain;
 	private TradeDao tradeDao;
-	private ScheduledExecutorService scheduler; 
+	private Clock clock;
+	private TradeExpiryScheduler expiryScheduler;
+	private volatile long expiryHorizonMillis = DEFAULT_EXPIRY_HORIZON_MILLIS;
+	private final LongAdder versionConflictCount = new LongAdder();
+	private volatile TradeAggregationEngine aggregationEngine;
+	private volatile AdmissionController admissionController;
+	//Held by expiry runs and while aggregation engine is attached, so no expiry is missed by both the snapshot and the engine
+	private final Object expiryLock = new Object();
 
 	//Constructor with TradeDao dependency injection
 	//TradeService is de-coupled from TradeDao and Validation chain
 	//If we use spring then we can use @Autowired for dependency injection
 	public TradeService(TradeDao tradeDao, TradeValidator validatorChain) {
+		this(tradeDao, validatorChain, Clock.systemUTC());
+	}
+	
+	//Clock is used for expiry horizon and by the expiry scheduler, inject simulated clock to replay trades faster than real time
+	public TradeService(TradeDao tradeDao, TradeValidator validatorChain, Clock clock) {
 		this.tradeDao = tradeDao;
-		this.validatorChain = validatorChain;	
+		this.validatorChain = validatorChain;
+		this.clock = clock;
 	}
 	
-	//
+	//Live ingest lane of admission control, AdmissionRejectedException when the lane is overloaded
 	public void addNewTrade(Trade trade) throws ValidationException {
-		validatorChain.validate(trade, tradeDao);
-		
-		Trade existingTrade = tradeDao.getTradeByIdLatestVersion(trade.getTradeId());
-		if (existingTrade != null && existingTrade.getTradeVersion() == trade.getTradeVersion()) {
-			tradeDao.updateTrade(existingTrade, trade);		
-		} else {
-			tradeDao.addTrade(trade);
+		AdmissionController admission = admissionController;
+		long admittedNanos = admit(admission, TradeLane.LIVE_INGEST);
+		try {
+			storeTrade(trade);
+		} finally {
+			release(admission, TradeLane.LIVE_INGEST, admittedNanos);
+		}
+	}
+	
+	//Bulk load on the bulk ingest lane, every trade is admitted separately so that live ingest can overtake the load
+	//Stops at the first invalid trade, trades before it stay added. Returns number of trades added
+	public int addNewTrades(Collection<Trade> trades) throws ValidationException {
+		int addedCount = 0;
+		for (Trade trade : trades) {
+			AdmissionController admission = admissionController;
+			long admittedNanos = admit(admission, TradeLane.BULK_INGEST);
+			try {
+				storeTrade(trade);
+			} finally {
+				release(admission, TradeLane.BULK_INGEST, admittedNanos);
+			}
+			addedCount++;
 		}
+		return addedCount;
+	}
+	
+	//Optimistic concurrency - no lock is held between validation and write
+	//DAO writes the trade only if latest version is still the one seen here, otherwise trade is validated again and retried
+	//VersionConflictException when all the retries lost to concurrent writers of the same tradeId
+	private void storeTrade(Trade trade) throws ValidationException {
+		for (int attempt = 0; attempt < MAX_VERSION_CONFLICT_RETRIES; attempt++) {
+			validatorChain.validate(trade, tradeDao);
+			
+			Trade existingTrade = tradeDao.getTradeByIdLatestVersion(trade.getTradeId());
+			int expectedLatestVersion = existingTrade == null ? TradeDao.NO_VERSION : existingTrade.getTradeVersion();
+			//Higher version may have been added after validation, validators will reject it in the next attempt
+			if (expectedLatestVersion <= trade.getTradeVersion() && tradeDao.upsertVersioned(trade, expectedLatestVersion)) {
+				TradeAggregationEngine engine = aggregationEngine;
+				if (engine != null) {
+					engine.onTradeStored(trade);
+				}
+				return;
+			}
+			versionConflictCount.increment();
+		}
+		throw new VersionConflictException(TRADE_VERSION_CONFLICT, trade.getTradeId(), MAX_VERSION_CONFLICT_RETRIES);
+	}
+	
+	//Number of times addNewTrade had to retry because another thread changed the trade concurrently
+	public long getVersionConflictCount() {
+		return versionConflictCount.sum();
 	}
 	
 	public Collection<Trade> getTrades () {
-		return tradeDao.getAllTrades();
+		AdmissionController admission = admissionController;
+		long admittedNanos = admit(admission, TradeLane.READ);
+		try {
+			return tradeDao.getAllTrades();
+		} finally {
+			release(admission, TradeLane.READ, admittedNanos);
+		}
+	}
+	
+	public Trade getTradeByIdLatestVersion(String tradeId) {
+		AdmissionController admission = admissionController;
+		long admittedNanos = admit(admission, TradeLane.READ);
+		try {
+			return tradeDao.getTradeByIdLatestVersion(tradeId);
+		} finally {
+			release(admission, TradeLane.READ, admittedNanos);
+		}
+	}
+	
+	//All versions of trades whose tradeId starts with the prefix, sorted by tradeId and tradeVersion (descending)
+	public Collection<Trade> findTradesByIdPrefix(String tradeIdPrefix) {
+		AdmissionController admission = admissionController;
+		long admittedNanos = admit(admission, TradeLane.READ);
+		try {
+			return tradeDao.findTradesByIdPrefix(tradeIdPrefix);
+		} finally {
+			release(admission, TradeLane.READ, admittedNanos);
+		}
+	}
+	
+	//All versions of trades with tradeId in [fromTradeId, toTradeId), null bound means open range
+	public Collection<Trade> findTradesByIdRange(String fromTradeId, String toTradeId) {
+		AdmissionController admission = admissionController;
+		long admittedNanos = admit(admission, TradeLane.READ);
+		try {
+			return tradeDao.findTradesByIdRange(fromTradeId, toTradeId);
+		} finally {
+			release(admission, TradeLane.READ, admittedNanos);
+		}
+	}
+	
+	//State of the trade as of the given time - its highest version created at or before asOfTs
+	public Trade getTradeAsOf(String tradeId, long asOfTs) {
+		AdmissionController admission = admissionController;
+		long admittedNanos = admit(admission, TradeLane.READ);
+		try {
+			return tradeDao.getTradeAsOf(tradeId, asOfTs);
+		} finally {
+			release(admission, TradeLane.READ, admittedNanos);
+		}
+	}
+	
+	//State of the whole book as of the given time, one trade per tradeId sorted by tradeId
+	public Collection<Trade> getBookAsOf(long asOfTs) {
+		AdmissionController admission = admissionController;
+		long admittedNanos = admit(admission, TradeLane.READ);
+		try {
+			return tradeDao.getBookAsOf(asOfTs);
+		} finally {
+			release(admission, TradeLane.READ, admittedNanos);
+		}
+	}
+	
+	//Same as getBookAsOf without collecting the book into memory
+	public void forEachTradeAsOf(long asOfTs, Consumer<? super Trade> action) {
+		AdmissionController admission = admissionController;
+		long admittedNanos = admit(admission, TradeLane.READ);
+		try {
+			tradeDao.forEachTradeAsOf(asOfTs, action);
+		} finally {
+			release(admission, TradeLane.READ, admittedNanos);
+		}
+	}
+	
+	//Expiry is done by the DAO itself, trades are not loaded into the service
+	//Horizon is calculated for every run, returns number of trades expired by this run
+	public int updateTradeExpiry() {
+		return updateTradeExpiry(clock.millis() + expiryHorizonMillis, Integer.MAX_VALUE);
+	}
+	
+	//Expire at most maxTrades trades maturing before maturityDateTs, used by the scheduler to expire in chunks
+	//Expired tradeIds are collected only when aggregation engine is attached
+	public int updateTradeExpiry(long maturityDateTs, int maxTrades) {
+		AdmissionController admission = admissionController;
+		long admittedNanos = admit(admission, TradeLane.EXPIRY);
+		try {
+			synchronized (expiryLock) {
+				TradeAggregationEngine engine = aggregationEngine;
+				if (engine == null) {
+					return tradeDao.expireTradesMaturingBefore(maturityDateTs, maxTrades, null);
+				}
+				List<String> expiredTradeIds = new ArrayList<>();
+				int expiredCount = tradeDao.expireTradesMaturingBefore(maturityDateTs, maxTrades, expiredTradeIds);
+				engine.onTradesExpired(expiredTradeIds, maturityDateTs);
+				return expiredCount;
+			}
+		} finally {
+			release(admission, TradeLane.EXPIRY, admittedNanos);
+		}
+	}
+	
+	//Attach incremental aggregation to ingest and expiry, engine is loaded with the trades already in the store
+	//Ingest may go on - engine is published buffering before the store is read and replays what was stored meanwhile.
+	//Expiry waits until the engine is loaded. Register aggregates on the engine before attaching it
+	public void setAggregationEngine(TradeAggregationEngine aggregationEngine) {
+		synchronized (expiryLock) {
+			if (aggregationEngine != null) {
+				aggregationEngine.beginLoad();
+				this.aggregationEngine = aggregationEngine;
+				aggregationEngine.load(tradeDao.getAllTrades());
+			} else {
+				this.aggregationEngine = null;
+			}
+		}
 	}
 	
-	public void updateTradeExpiry() {
-		Collection<Trade> expiredTradeList = tradeDao.findTradesLessThanMaturityDate(System.currentTimeMillis()+20000);
-		expiredTradeList.forEach(trade -> trade.setExpired(true));		
+	public TradeAggregationEngine getAggregationEngine() {
+		return aggregationEngine;
+	}
+	
+	//Admission control by priority lane (live ingest, bulk ingest, reads, expiry), null switches it off
+	public void setAdmissionController(AdmissionController admissionController) {
+		this.admissionController = admissionController;
+	}
+	
+	public AdmissionController getAdmissionController() {
+		return admissionController;
+	}
+	
+	//Controller is read once per request, so a request is released by the controller which admitted it
+	private static long admit(AdmissionController admission, TradeLane lane) {
+		return admission == null ? 0 : admission.acquire(lane);
+	}
+	
+	private static void release(AdmissionController admission, TradeLane lane, long admittedNanos) {
+		if (admission != null) {
+			admission.release(lane, admittedNanos);
+		}
 	}
 	
+	//Number of trades not expired yet per maturity bucket, used by the scheduler to look ahead
+	public int[] getMaturityProfile(long fromTs, long bucketMillis, int bucketCount) {
+		AdmissionController admission = admissionController;
+		long admittedNanos = admit(admission, TradeLane.EXPIRY);
+		try {
+			return tradeDao.getMaturityProfile(fromTs, bucketMillis, bucketCount);
+		} finally {
+			release(admission, TradeLane.EXPIRY, admittedNanos);
+		}
+	}
+	
+	public Clock getClock() {
+		return clock;
+	}
+	
+	public long getExpiryHorizonMillis() {
+		return expiryHorizonMillis;
+	}
+	
+	public void setExpiryHorizonMillis(long expiryHorizonMillis) {
+		this.expiryHorizonMillis = expiryHorizonMillis;
+	}
+	
+	//Fixed cadence, kept for compatibility - same as adaptive scheduler with equal min and max delay
 	//When integrated with Spring, @Scheduled can be used
 	public void startTradeExpiryScheduler(long firstRunSeconds, long afterEverySeconds) {				
+		startTradeExpiryScheduler(TimeUnit.SECONDS.toMillis(firstRunSeconds), 
+				TimeUnit.SECONDS.toMillis(afterEverySeconds), TimeUnit.SECONDS.toMillis(afterEverySeconds));
+	}
+	
+	//Adaptive cadence between minDelayMillis and maxDelayMillis, see TradeExpiryScheduler
+	public void startTradeExpiryScheduler(long firstRunMillis, long minDelayMillis, long maxDelayMillis) {
+		startTradeExpiryScheduler(new TradeExpiryScheduler(this, minDelayMillis, maxDelayMillis), firstRunMillis);
+	}
+	
+	public synchronized void startTradeExpiryScheduler(TradeExpiryScheduler scheduler, long firstRunMillis) {
 		stopTradeExpiryScheduler();
-		scheduler = Executors.newScheduledThreadPool(1);            
-		scheduler.scheduleAtFixedRate(
-			() -> updateTradeExpiry(),
-			firstRunSeconds,
-			afterEverySeconds,
-		    TimeUnit.SECONDS);		
+		expiryScheduler = scheduler;
+		expiryScheduler.start(firstRunMillis);
 	}
 	
-	public void stopTradeExpiryScheduler() {				
-		if (scheduler != null) {
-			scheduler.shutdown();
-			try {
-				scheduler.awaitTermination(1000, TimeUnit.SECONDS);
-			} catch (InterruptedException e) {
-				//Ignore
-			}
+	public synchronized void stopTradeExpiryScheduler() {				
+		if (expiryScheduler != null) {
+			expiryScheduler.stop();
 		}
 	}
+	
+	//Scheduler metrics (expiry lag, sweep cost), null when scheduler was never started
+	public synchronized TradeExpiryScheduler getTradeExpiryScheduler() {
+		return expiryScheduler;
+	}
 }
@@ -6,6 +6,8 @@
 */
 package org.pmk.demo.trade.validations;
 
+import java.time.Clock;
+
 import org.pmk.demo.trade.dao.TradeDao;
 import org.pmk.demo.trade.exception.ValidationException;
 import org.pmk.demo.trade.model.Trade;
@@ -14,13 +16,21 @@ public class TradeMaturityDateValidator extends TradeValidator {
 	
 	private static final String TRADE_MATURITY_DATE_LOWER = "Maturity Date of the Trade cannot be lower than the Current Date";
 
+	private final Clock clock;
+
 	public TradeMaturityDateValidator(TradeValidator nextValidator) {
+		this(nextValidator, Clock.systemUTC());
+	}
+	
+	//Clock is injected so that trades can be validated against simulated time (e.g. replay)
+	public TradeMaturityDateValidator(TradeValidator nextValidator, Clock clock) {
 		super(nextValidator);
+		this.clock = clock;
 	}
 	
 	@Override
 	protected void validateThis(Trade trade, TradeDao dao) throws ValidationException {
-		if (System.currentTimeMillis() > trade.getMaturityDateTimeStamp()) {
+		if (clock.millis() > trade.getMaturityDateTimeStamp()) {
 			throw new ValidationException(TRADE_MATURITY_DATE_LOWER);
 		}
 	}
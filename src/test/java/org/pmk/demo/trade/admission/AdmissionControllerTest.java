@@ -0,0 +1,184 @@
+/**
+* Unit Test for AIMD admission control and its use by TradeService
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+
+package org.pmk.demo.trade.admission;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.pmk.demo.trade.dao.InMemoryTradeDao;
+import org.pmk.demo.trade.exception.AdmissionRejectedException;
+import org.pmk.demo.trade.exception.AdmissionRejectedException.RejectionCode;
+import org.pmk.demo.trade.exception.ValidationException;
+import org.pmk.demo.trade.model.Trade;
+import org.pmk.demo.trade.service.TradeService;
+import org.pmk.demo.trade.validations.TradeMaturityDateValidator;
+import org.pmk.demo.trade.validations.TradeVersionValidator;
+
+public class AdmissionControllerTest {
+	//Long target latency, so that only the latencies given to release decide overload
+	private static final long TARGET_LATENCY_MICROS = TimeUnit.SECONDS.toMicros(1);
+	private static final long OVERLOADED_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+	@Test
+	//Lane without queue rejects at once
+	public void testRejectConcurrencyLimit() {
+		AimdLimiter limiter = new AimdLimiter(TradeLane.LIVE_INGEST, 1, 1, 1, TARGET_LATENCY_MICROS, 0, 0);
+		limiter.acquire();
+		AdmissionRejectedException e = assertThrows(AdmissionRejectedException.class, limiter::acquire);
+		assertEquals(TradeLane.LIVE_INGEST, e.getLane());
+		assertEquals(RejectionCode.CONCURRENCY_LIMIT, e.getRejectionCode());
+		assertEquals(1, limiter.getRejectedCount(RejectionCode.CONCURRENCY_LIMIT));
+		limiter.release(0);
+		limiter.acquire();
+		assertEquals(2, limiter.getAdmittedCount());
+	}
+
+	@Test
+	//Request waits in the queue up to max queue wait
+	public void testRejectQueueTimeout() {
+		AimdLimiter limiter = new AimdLimiter(TradeLane.BULK_INGEST, 1, 1, 1, TARGET_LATENCY_MICROS, 10, 1);
+		limiter.acquire();
+		AdmissionRejectedException e = assertThrows(AdmissionRejectedException.class, limiter::acquire);
+		assertEquals(RejectionCode.QUEUE_TIMEOUT, e.getRejectionCode());
+		assertEquals(1, limiter.getInFlight());
+	}
+
+	@Test
+	//Interrupt status is kept for the caller
+	public void testRejectInterrupted() {
+		AimdLimiter limiter = new AimdLimiter(TradeLane.READ, 1, 1, 1, TARGET_LATENCY_MICROS, 1000, 1);
+		limiter.acquire();
+		Thread.currentThread().interrupt();
+		AdmissionRejectedException e = assertThrows(AdmissionRejectedException.class, limiter::acquire);
+		assertEquals(RejectionCode.INTERRUPTED, e.getRejectionCode());
+		assertTrue(Thread.interrupted());
+	}
+
+	@Test
+	//Additive increase by at most 1 per target latency up to the max limit,
+	//multiplicative decrease at most once per target latency down to the min limit
+	public void testAdditiveIncreaseMultiplicativeDecrease() throws InterruptedException {
+		AimdLimiter limiter = new AimdLimiter(TradeLane.READ, 2, 1, 4, TARGET_LATENCY_MICROS, 0, 0);
+		for (int i = 0; i < 3; i++) {
+			limiter.acquire();
+			assertFalse(limiter.release(0));
+		}
+		assertEquals(3, limiter.getLimit());
+		for (int i = 0; i < 100; i++) {
+			limiter.acquire();
+			limiter.release(0);
+		}
+		assertEquals(3, limiter.getLimit());
+
+		AimdLimiter quickLimiter = new AimdLimiter(TradeLane.READ, 2, 1, 4, 1000, 0, 0);
+		for (int i = 0; i < 100 && quickLimiter.getLimit() < 4; i++) {
+			Thread.sleep(2);
+			quickLimiter.acquire();
+			quickLimiter.release(0);
+		}
+		assertEquals(4, quickLimiter.getLimit());
+
+		limiter = new AimdLimiter(TradeLane.READ, 4, 1, 4, TARGET_LATENCY_MICROS, 0, 0);
+
+		assertTrue(limiter.decrease());
+		assertEquals(3, limiter.getLimit());
+		//Same burst of slow requests
+		assertTrue(limiter.decrease());
+		assertEquals(3, limiter.getLimit());
+
+		limiter.acquire();
+		assertTrue(limiter.release(OVERLOADED_NANOS));
+		assertEquals(1, limiter.getOverloadedCount());
+		assertEquals(3, limiter.getLimit());
+
+		AimdLimiter minLimiter = new AimdLimiter(TradeLane.READ, 1, 1, 4, TARGET_LATENCY_MICROS, 0, 0);
+		assertFalse(minLimiter.decrease());
+		assertEquals(1, minLimiter.getLimit());
+	}
+
+	@Test
+	//Overloaded live ingest sheds lower priority lanes and keeps its own limit
+	public void testShedLowerPriorityLanes() {
+		AdmissionController admission = new AdmissionController(
+				new AimdLimiter(TradeLane.LIVE_INGEST, 16, 4, 256, TARGET_LATENCY_MICROS, 0, 0),
+				new AimdLimiter(TradeLane.READ, 8, 1, 64, TARGET_LATENCY_MICROS, 0, 0),
+				new AimdLimiter(TradeLane.BULK_INGEST, 8, 1, 64, TARGET_LATENCY_MICROS, 0, 0));
+		admission.acquire(TradeLane.LIVE_INGEST);
+		admission.release(TradeLane.LIVE_INGEST, System.nanoTime() - OVERLOADED_NANOS);
+		assertEquals(16, admission.getLimiter(TradeLane.LIVE_INGEST).getLimit());
+		assertEquals(6, admission.getLimiter(TradeLane.READ).getLimit());
+		assertEquals(6, admission.getLimiter(TradeLane.BULK_INGEST).getLimit());
+		assertEquals(0, admission.getLimiter(TradeLane.LIVE_INGEST).getInFlight());
+
+		//Lowest priority lane has no one to shed
+		admission.acquire(TradeLane.BULK_INGEST);
+		admission.release(TradeLane.BULK_INGEST, System.nanoTime() - OVERLOADED_NANOS);
+		assertEquals(6, admission.getLimiter(TradeLane.READ).getLimit());
+	}
+
+	@Test
+	//Lane is cut itself when all lower priority lanes are at their minimum
+	public void testShedOwnLaneAtMinimum() {
+		AdmissionController admission = new AdmissionController(
+				new AimdLimiter(TradeLane.LIVE_INGEST, 16, 4, 256, TARGET_LATENCY_MICROS, 0, 0),
+				new AimdLimiter(TradeLane.READ, 1, 1, 64, TARGET_LATENCY_MICROS, 0, 0),
+				new AimdLimiter(TradeLane.BULK_INGEST, 1, 1, 64, TARGET_LATENCY_MICROS, 0, 0));
+		admission.acquire(TradeLane.LIVE_INGEST);
+		admission.release(TradeLane.LIVE_INGEST, System.nanoTime() - OVERLOADED_NANOS);
+		assertEquals(12, admission.getLimiter(TradeLane.LIVE_INGEST).getLimit());
+	}
+
+	@Test
+	//TradeService requests go through their lanes, rejection reaches the caller
+	public void testTradeServiceLanes() throws ValidationException {
+		TradeService tradeService = new TradeService(new InMemoryTradeDao(),
+				new TradeMaturityDateValidator(new TradeVersionValidator(null)));
+		AdmissionController admission = new AdmissionController(
+				new AimdLimiter(TradeLane.LIVE_INGEST, 1, 1, 1, TARGET_LATENCY_MICROS, 0, 0));
+		tradeService.setAdmissionController(admission);
+
+		long maturity = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
+		List<Trade> trades = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			trades.add(Trade.createTrade("B" + i, 1, "CP-1", "B1", System.currentTimeMillis(), maturity, false));
+		}
+		assertEquals(10, tradeService.addNewTrades(trades));
+		assertEquals(10, admission.getLimiter(TradeLane.BULK_INGEST).getAdmittedCount());
+		assertEquals(10, tradeService.getTrades().size());
+		assertEquals(1, admission.getLimiter(TradeLane.READ).getAdmittedCount());
+		tradeService.updateTradeExpiry();
+		assertEquals(1, admission.getLimiter(TradeLane.EXPIRY).getAdmittedCount());
+
+		//Permit of the only live ingest slot is held by another request
+		long admittedNanos = admission.acquire(TradeLane.LIVE_INGEST);
+		AdmissionRejectedException e = assertThrows(AdmissionRejectedException.class,
+				() -> tradeService.addNewTrade(Trade.createTrade("L1", 1, "CP-1", "B1", System.currentTimeMillis(), maturity, false)));
+		assertEquals(TradeLane.LIVE_INGEST, e.getLane());
+		assertEquals(RejectionCode.CONCURRENCY_LIMIT, e.getRejectionCode());
+		admission.release(TradeLane.LIVE_INGEST, admittedNanos);
+
+		tradeService.addNewTrade(Trade.createTrade("L1", 1, "CP-1", "B1", System.currentTimeMillis(), maturity, false));
+		assertEquals(0, admission.getLimiter(TradeLane.LIVE_INGEST).getInFlight());
+		assertEquals(11, tradeService.getTrades().size());
+
+		//Invalid trade in a bulk load, trades before it stay added
+		trades.clear();
+		trades.add(Trade.createTrade("B10", 1, "CP-1", "B1", System.currentTimeMillis(), maturity, false));
+		trades.add(Trade.createTrade("B11", 1, "CP-1", "B1", System.currentTimeMillis(), System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1), false));
+		assertThrows(ValidationException.class, () -> tradeService.addNewTrades(trades));
+		assertEquals(12, tradeService.getTrades().size());
+		assertEquals(0, admission.getLimiter(TradeLane.BULK_INGEST).getInFlight());
+	}
+}
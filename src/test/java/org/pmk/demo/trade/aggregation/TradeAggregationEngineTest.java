@@ -0,0 +1,208 @@
+/**
+* Unit Test for TradeAggregationEngine attached to TradeService
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+
+package org.pmk.demo.trade.aggregation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pmk.demo.trade.dao.InMemoryTradeDao;
+import org.pmk.demo.trade.exception.ValidationException;
+import org.pmk.demo.trade.model.Trade;
+import org.pmk.demo.trade.replay.SimulatedClock;
+import org.pmk.demo.trade.service.TradeService;
+import org.pmk.demo.trade.validations.TradeMaturityDateValidator;
+import org.pmk.demo.trade.validations.TradeVersionValidator;
+
+public class TradeAggregationEngineTest {
+	//2026-10-19T00:00:00Z
+	private static final long NOW = 1792368000000L;
+	private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+	private SimulatedClock clock;
+	private TradeService tradeService;
+	private TradeAggregationEngine engine;
+
+	@BeforeEach
+	public void setUp () {
+		clock = new SimulatedClock(NOW);
+		tradeService = new TradeService(new InMemoryTradeDao(),
+				new TradeMaturityDateValidator(new TradeVersionValidator(null), clock), clock);
+		engine = new TradeAggregationEngine(clock);
+		engine.register("bookByMonth", Trade::getBookId, MaturityBucketing.MATURITY_MONTH);
+		engine.register("counterPartyByDays", Trade::getCounterPartyId, MaturityBucketing.DAYS_TO_MATURITY);
+		tradeService.setAggregationEngine(engine);
+	}
+
+	@AfterEach
+	//Reset before next test
+	public void tearDown () {
+		tradeService = null;
+		engine = null;
+	}
+
+	@Test
+	//New versions move the trade between groups and buckets
+	public void testIngestAndUpdate() throws ValidationException {
+		tradeService.addNewTrade(Trade.createTrade("T1", 1, "CP-1", "B1", NOW, NOW + 2 * DAY, false));
+		tradeService.addNewTrade(Trade.createTrade("T2", 1, "CP-1", "B1", NOW, NOW + 20 * DAY, false));
+		tradeService.addNewTrade(Trade.createTrade("T3", 1, "CP-2", "B2", NOW, NOW + 2 * DAY, false));
+
+		TradeAggregateSnapshot byMonth = engine.snapshot("bookByMonth");
+		assertEquals(1, byMonth.getCount("B1", 202610));
+		assertEquals(1, byMonth.getCount("B1", 202611));
+		assertEquals(1, byMonth.getCount("B2", 202610));
+
+		tradeService.addNewTrade(Trade.createTrade("T1", 2, "CP-2", "B2", NOW, NOW + 2 * DAY, false));
+		byMonth = engine.snapshot("bookByMonth");
+		assertEquals(1, byMonth.getCount("B1"));
+		assertEquals(2, byMonth.getCount("B2", 202610));
+
+		TradeAggregateSnapshot byDays = engine.snapshot("counterPartyByDays");
+		assertEquals(1, byDays.getCount("CP-1", 20));
+		assertEquals(2, byDays.getCount("CP-2", 2));
+		assertEquals(3, engine.getLiveTradeCount());
+	}
+
+	@Test
+	//Days to maturity are relabelled with the time of the snapshot
+	public void testDaysToMaturityRelabelled() throws ValidationException {
+		tradeService.addNewTrade(Trade.createTrade("T1", 1, "CP-1", "B1", NOW, NOW + 5 * DAY, false));
+		assertEquals(1, engine.snapshot("counterPartyByDays").getCount("CP-1", 5));
+
+		clock.setMillis(NOW + 3 * DAY);
+		assertEquals(1, engine.snapshot("counterPartyByDays").getCount("CP-1", 2));
+	}
+
+	@Test
+	//Expired trades are no longer live
+	public void testExpiry() throws ValidationException {
+		tradeService.addNewTrade(Trade.createTrade("T1", 1, "CP-1", "B1", NOW, NOW + DAY, false));
+		tradeService.addNewTrade(Trade.createTrade("T2", 1, "CP-1", "B1", NOW, NOW + 10 * DAY, false));
+
+		clock.setMillis(NOW + 2 * DAY);
+		assertEquals(1, tradeService.updateTradeExpiry());
+		assertEquals(1, engine.snapshot("bookByMonth").getCount("B1"));
+		assertEquals(1, engine.getLiveTradeCount());
+	}
+
+	@Test
+	//Snapshot matches recomputation from getTrades
+	public void testMatchesRecompute() throws ValidationException {
+		for (int i = 0; i < 200; i++) {
+			for (int version = 1; version <= 1 + i % 3; version++) {
+				tradeService.addNewTrade(Trade.createTrade("T" + i, version, "CP-" + (i + version) % 7, "B" + (i * version) % 5,
+						NOW, NOW + (1 + (i * 7 + version) % 90) * DAY, false));
+			}
+		}
+		clock.setMillis(NOW + 30 * DAY);
+		tradeService.updateTradeExpiry();
+
+		Map<String, Long> recomputed = new HashMap<>();
+		String previousTradeId = null;
+		for (Trade trade : tradeService.getTrades()) {
+			if (!trade.getTradeId().equals(previousTradeId) && !trade.isExpired()) {
+				recomputed.merge(trade.getBookId(), 1L, Long::sum);
+			}
+			previousTradeId = trade.getTradeId();
+		}
+		TradeAggregateSnapshot byMonth = engine.snapshot("bookByMonth");
+		assertEquals(recomputed.keySet(), byMonth.getCounts().keySet());
+		for (Map.Entry<String, Long> entry : recomputed.entrySet()) {
+			assertEquals(entry.getValue().longValue(), byMonth.getCount(entry.getKey()));
+		}
+	}
+
+	@Test
+	//Aggregate registered later is seeded from the live trades and names are unique
+	public void testRegisterLater() throws ValidationException {
+		tradeService.addNewTrade(Trade.createTrade("T1", 1, "CP-1", "B1", NOW, NOW + DAY, false));
+		engine.register("all", trade -> "ALL", MaturityBucketing.MATURITY_MONTH);
+
+		assertEquals(1, engine.snapshot("all").getCount("ALL"));
+		assertThrows(IllegalArgumentException.class, () -> engine.register("all", Trade::getBookId, MaturityBucketing.MATURITY_MONTH));
+	}
+
+	@Test
+	//Stored events of one tradeId reported in reverse order, the lower version does not replace the higher one
+	public void testLowerVersionIgnored() {
+		TradeAggregationEngine outOfOrderEngine = new TradeAggregationEngine(clock);
+		outOfOrderEngine.register("book", Trade::getBookId, MaturityBucketing.MATURITY_MONTH);
+		outOfOrderEngine.onTradeStored(Trade.createTrade("T1", 2, "CP-1", "B2", NOW, NOW + DAY, false));
+		outOfOrderEngine.onTradeStored(Trade.createTrade("T1", 1, "CP-1", "B1", NOW, NOW + DAY, false));
+
+		assertEquals(1, outOfOrderEngine.getLiveTradeCount());
+		assertEquals(0, outOfOrderEngine.snapshot("book").getCount("B1"));
+		assertEquals(1, outOfOrderEngine.snapshot("book").getCount("B2"));
+	}
+
+	@Test
+	//Events reported during load are replayed after the snapshot, an older snapshot of the same version does not win
+	public void testEventsBufferedDuringLoad() {
+		TradeAggregationEngine loadingEngine = new TradeAggregationEngine(clock);
+		loadingEngine.register("book", Trade::getBookId, MaturityBucketing.MATURITY_MONTH);
+		loadingEngine.beginLoad();
+		loadingEngine.onTradeStored(Trade.createTrade("T1", 1, "CP-1", "B2", NOW, NOW + DAY, false));
+		loadingEngine.onTradeStored(Trade.createTrade("T2", 1, "CP-1", "B1", NOW, NOW + DAY, false));
+		assertEquals(0, loadingEngine.getLiveTradeCount());
+
+		loadingEngine.load(Arrays.asList(Trade.createTrade("T1", 1, "CP-1", "B1", NOW, NOW + DAY, false)));
+		assertEquals(2, loadingEngine.getLiveTradeCount());
+		assertEquals(1, loadingEngine.snapshot("book").getCount("B1"));
+		assertEquals(1, loadingEngine.snapshot("book").getCount("B2"));
+
+		loadingEngine.onTradeStored(Trade.createTrade("T3", 1, "CP-1", "B1", NOW, NOW + DAY, false));
+		assertEquals(3, loadingEngine.getLiveTradeCount());
+	}
+
+	@Test
+	//Engine attached while trades are being added counts every trade
+	public void testAttachDuringIngest() throws Exception {
+		TradeService busyService = new TradeService(new InMemoryTradeDao(),
+				new TradeMaturityDateValidator(new TradeVersionValidator(null), clock), clock);
+		int threads = 4;
+		int tradesPerThread = 2000;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch started = new CountDownLatch(threads);
+		List<Future<?>> results = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			int thread = t;
+			results.add(executor.submit(() -> {
+				started.countDown();
+				for (int i = 0; i < tradesPerThread; i++) {
+					busyService.addNewTrade(Trade.createTrade("T" + thread + "-" + i, 1, "CP-1", "B1", NOW, NOW + DAY, false));
+				}
+				return null;
+			}));
+		}
+		started.await();
+		TradeAggregationEngine lateEngine = new TradeAggregationEngine(clock);
+		lateEngine.register("book", Trade::getBookId, MaturityBucketing.MATURITY_MONTH);
+		busyService.setAggregationEngine(lateEngine);
+		for (Future<?> result : results) {
+			result.get();
+		}
+		executor.shutdown();
+
+		assertEquals(threads * tradesPerThread, lateEngine.getLiveTradeCount());
+		assertEquals(threads * tradesPerThread, lateEngine.snapshot("book").getCount("B1"));
+	}
+}
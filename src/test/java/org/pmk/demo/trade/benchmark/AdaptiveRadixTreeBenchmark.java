@@ -0,0 +1,158 @@
+/**
+* Benchmark for AdaptiveRadixTree against TreeSet and ConcurrentSkipListMap as the tradeId index
+* Keys look like real tradeIds - desk and date prefix and a sequence number.
+* Memory is measured as heap retained by the index, values and key Strings are created before measuring and shared by all the indexes.
+* Run with a fixed heap e.g. -Xmx2g
+* Not a JUNIT test, run the main method manually
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.benchmark;
+
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+import org.pmk.demo.trade.dao.AdaptiveRadixTree;
+import org.pmk.demo.trade.model.Trade;
+
+public class AdaptiveRadixTreeBenchmark {
+	private static final int KEYS = 1000000;
+	private static final String[] DESKS = {"FX", "IRS", "CDS", "EQD"};
+	private static final int DAYS = 25;
+	private static final String PREFIX = "IRS-20261007-";
+	private static final int LOOKUPS = 1000000;
+	private static final int PREFIX_SCANS = 50;
+
+	//Retained so that heap measurement sees the index
+	private static Object index;
+
+	public static void main(String[] args) {
+		String[] keys = new String[KEYS];
+		for (int i = 0; i < KEYS; i++) {
+			keys[i] = DESKS[i % DESKS.length] + "-202610" + String.format("%02d", 1 + (i / DESKS.length) % DAYS) + "-" + String.format("%06d", i);
+		}
+		//Index values, the same Trade objects are used by all the indexes
+		Trade[] trades = new Trade[KEYS];
+		for (int i = 0; i < KEYS; i++) {
+			trades[i] = Trade.createTrade(keys[i], 1, null, null, 0, 0, false);
+		}
+		for (int round = 0; round < 2; round++) {
+			System.out.println("Round " + (round + 1));
+			art(keys, trades);
+			treeSet(keys, trades);
+			skipList(keys, trades);
+		}
+	}
+
+	private static void art(String[] keys, Trade[] trades) {
+		long heapBefore = usedHeap();
+		long start = System.nanoTime();
+		AdaptiveRadixTree<Trade> tree = new AdaptiveRadixTree<>(Trade::getTradeId);
+		for (Trade trade : trades) {
+			tree.put(trade);
+		}
+		long insertNanos = System.nanoTime() - start;
+		index = tree;
+		long bytesPerKey = (usedHeap() - heapBefore) / keys.length;
+
+		start = System.nanoTime();
+		long found = 0;
+		for (int i = 0; i < LOOKUPS; i++) {
+			found += tree.get(keys[(int) ((i * 7919L) % keys.length)]) == null ? 0 : 1;
+		}
+		long lookupNanos = System.nanoTime() - start;
+
+		long[] prefixCount = new long[1];
+		start = System.nanoTime();
+		for (int i = 0; i < PREFIX_SCANS; i++) {
+			prefixCount[0] = 0;
+			tree.forEachValueWithPrefix(PREFIX, value -> prefixCount[0]++);
+		}
+		long prefixNanos = (System.nanoTime() - start) / PREFIX_SCANS;
+		report("AdaptiveRadixTree", insertNanos, lookupNanos, found, prefixNanos, prefixCount[0], bytesPerKey);
+		index = null;
+	}
+
+	//TreeSet of Trade as in the original InMemoryTradeDao, lookup by ceiling of a probe trade
+	private static void treeSet(String[] keys, Trade[] trades) {
+		long heapBefore = usedHeap();
+		long start = System.nanoTime();
+		TreeSet<Trade> tree = new TreeSet<>();
+		for (Trade trade : trades) {
+			tree.add(trade);
+		}
+		long insertNanos = System.nanoTime() - start;
+		index = tree;
+		long bytesPerKey = (usedHeap() - heapBefore) / keys.length;
+
+		start = System.nanoTime();
+		long found = 0;
+		for (int i = 0; i < LOOKUPS; i++) {
+			String key = keys[(int) ((i * 7919L) % keys.length)];
+			Trade trade = tree.ceiling(Trade.createTrade(key, Integer.MAX_VALUE, null, null, 0, 0, false));
+			found += trade != null && trade.getTradeId().equals(key) ? 1 : 0;
+		}
+		long lookupNanos = System.nanoTime() - start;
+
+		long prefixCount = 0;
+		start = System.nanoTime();
+		for (int i = 0; i < PREFIX_SCANS; i++) {
+			prefixCount = 0;
+			for (Trade trade : tree.subSet(Trade.createTrade(PREFIX, Integer.MAX_VALUE, null, null, 0, 0, false), true,
+					Trade.createTrade(PREFIX + Character.MAX_VALUE, Integer.MAX_VALUE, null, null, 0, 0, false), false)) {
+				prefixCount++;
+			}
+		}
+		long prefixNanos = (System.nanoTime() - start) / PREFIX_SCANS;
+		report("TreeSet<Trade>", insertNanos, lookupNanos, found, prefixNanos, prefixCount, bytesPerKey);
+		index = null;
+	}
+
+	private static void skipList(String[] keys, Trade[] trades) {
+		long heapBefore = usedHeap();
+		long start = System.nanoTime();
+		ConcurrentSkipListMap<String, Trade> map = new ConcurrentSkipListMap<>();
+		for (Trade trade : trades) {
+			map.put(trade.getTradeId(), trade);
+		}
+		long insertNanos = System.nanoTime() - start;
+		index = map;
+		long bytesPerKey = (usedHeap() - heapBefore) / keys.length;
+
+		start = System.nanoTime();
+		long found = 0;
+		for (int i = 0; i < LOOKUPS; i++) {
+			found += map.get(keys[(int) ((i * 7919L) % keys.length)]) == null ? 0 : 1;
+		}
+		long lookupNanos = System.nanoTime() - start;
+
+		long prefixCount = 0;
+		start = System.nanoTime();
+		for (int i = 0; i < PREFIX_SCANS; i++) {
+			prefixCount = 0;
+			for (Trade trade : map.subMap(PREFIX, PREFIX + Character.MAX_VALUE).values()) {
+				prefixCount++;
+			}
+		}
+		long prefixNanos = (System.nanoTime() - start) / PREFIX_SCANS;
+		report("ConcurrentSkipListMap", insertNanos, lookupNanos, found, prefixNanos, prefixCount, bytesPerKey);
+		index = null;
+	}
+
+	private static void report(String name, long insertNanos, long lookupNanos, long found, long prefixNanos, long prefixCount, long bytesPerKey) {
+		System.out.println(name + ": insert " + TimeUnit.NANOSECONDS.toMillis(insertNanos) + " ms, "
+				+ LOOKUPS + " lookups " + TimeUnit.NANOSECONDS.toMillis(lookupNanos) + " ms (found " + found + "), "
+				+ "prefix scan " + TimeUnit.NANOSECONDS.toMicros(prefixNanos) + " us (" + prefixCount + " keys), "
+				+ "~" + bytesPerKey + " bytes/key");
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,194 @@
+/**
+* Load test of admission control - live ingest latency while a bulk load runs
+* Backing store is a database with a fixed round trip and a small connection pool. Live threads add trades at a fixed pace
+* and record addNewTrade latency, bulk threads load trades as fast as they can. Without admission control live ingest
+* queues for a connection behind the bulk load, with it the bulk lane is shed as soon as live ingest goes over its target latency.
+* Not a JUNIT test, run the main method manually
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.pmk.demo.trade.admission.AdmissionController;
+import org.pmk.demo.trade.admission.AimdLimiter;
+import org.pmk.demo.trade.admission.TradeLane;
+import org.pmk.demo.trade.dao.LatencyTradeDao;
+import org.pmk.demo.trade.exception.AdmissionRejectedException;
+import org.pmk.demo.trade.exception.ValidationException;
+import org.pmk.demo.trade.model.Trade;
+import org.pmk.demo.trade.service.TradeService;
+import org.pmk.demo.trade.validations.TradeMaturityDateValidator;
+import org.pmk.demo.trade.validations.TradeVersionValidator;
+
+public class AdmissionControlBenchmark {
+	private static final int DATABASE_CONNECTIONS = 4;
+	private static final long DATABASE_LATENCY_MICROS = 1000;
+	//Live ingest alone is 3 database round trips
+	private static final long LIVE_TARGET_LATENCY_MICROS = 5000;
+	private static final int LIVE_THREADS = 2;
+	private static final long LIVE_PACE_MICROS = 2000;
+	private static final int BULK_THREADS = 16;
+	private static final int BULK_BATCH_SIZE = 100;
+	//Bulk threads reload the same trades, so the store does not grow during the run
+	private static final int BULK_BATCHES_PER_THREAD = 50;
+	private static final long RUN_MILLIS = 5000;
+
+	//Database calls of addNewTrade wait for one of the pooled connections, first come first served
+	private static class PooledDatabaseDao extends LatencyTradeDao {
+		private final Semaphore connections = new Semaphore(DATABASE_CONNECTIONS, true);
+
+		PooledDatabaseDao() {
+			super(DATABASE_LATENCY_MICROS);
+		}
+
+		@Override
+		public Trade getTradeByIdLatestVersion(String tradeId) {
+			connections.acquireUninterruptibly();
+			try {
+				return super.getTradeByIdLatestVersion(tradeId);
+			} finally {
+				connections.release();
+			}
+		}
+
+		@Override
+		public boolean upsertVersioned(Trade theTrade, int expectedLatestVersion) {
+			connections.acquireUninterruptibly();
+			try {
+				return super.upsertVersioned(theTrade, expectedLatestVersion);
+			} finally {
+				connections.release();
+			}
+		}
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		for (int round = 0; round < 2; round++) {
+			System.out.println("Round " + (round + 1));
+			run("Live ingest only", false, false);
+			run("Live ingest with bulk load, no admission control", true, false);
+			run("Live ingest with bulk load, admission control", true, true);
+		}
+	}
+
+	private static void run(String name, boolean bulkLoad, boolean admissionControl) throws InterruptedException {
+		TradeService service = new TradeService(new PooledDatabaseDao(), new TradeMaturityDateValidator(new TradeVersionValidator(null)));
+		AdmissionController admission = admissionControl ? new AdmissionController(new AimdLimiter(TradeLane.LIVE_INGEST,
+				TradeLane.LIVE_INGEST.getInitialLimit(), TradeLane.LIVE_INGEST.getMinLimit(), TradeLane.LIVE_INGEST.getMaxLimit(),
+				LIVE_TARGET_LATENCY_MICROS, TradeLane.LIVE_INGEST.getMaxQueueWaitMillis(), TradeLane.LIVE_INGEST.getMaxQueueLength())) : null;
+		service.setAdmissionController(admission);
+		long maturity = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
+		AtomicBoolean running = new AtomicBoolean(true);
+		LongAdder bulkCount = new LongAdder();
+		LongAdder rejectedCount = new LongAdder();
+		List<long[]> liveLatencies = new ArrayList<>();
+		int[] liveCounts = new int[LIVE_THREADS];
+		List<Thread> threads = new ArrayList<>();
+		CountDownLatch started = new CountDownLatch(1);
+
+		for (int t = 0; t < LIVE_THREADS; t++) {
+			int thread = t;
+			long[] latencies = new long[(int) (RUN_MILLIS * 1000 / LIVE_PACE_MICROS) + 1];
+			liveLatencies.add(latencies);
+			threads.add(new Thread(() -> {
+				awaitStart(started);
+				long next = System.nanoTime();
+				int count = 0;
+				while (running.get() && count < latencies.length) {
+					next += TimeUnit.MICROSECONDS.toNanos(LIVE_PACE_MICROS);
+					long start = System.nanoTime();
+					try {
+						service.addNewTrade(Trade.createTrade("L" + thread + "-" + count, 1, "CP-1", "B1", System.currentTimeMillis(), maturity + count, false));
+						latencies[count++] = System.nanoTime() - start;
+					} catch (AdmissionRejectedException e) {
+						rejectedCount.increment();
+					} catch (ValidationException e) {
+						throw new IllegalStateException(e);
+					}
+					LockSupport.parkNanos(next - System.nanoTime());
+				}
+				liveCounts[thread] = count;
+			}));
+		}
+		for (int t = 0; bulkLoad && t < BULK_THREADS; t++) {
+			int thread = t;
+			threads.add(new Thread(() -> {
+				awaitStart(started);
+				List<Trade> batch = new ArrayList<>(BULK_BATCH_SIZE);
+				for (int b = 0; running.get(); b++) {
+					batch.clear();
+					for (int i = 0; i < BULK_BATCH_SIZE; i++) {
+						batch.add(Trade.createTrade("B" + thread + "-" + (b % BULK_BATCHES_PER_THREAD) + "-" + i, 1, "CP-2", "B2", System.currentTimeMillis(), maturity + i, false));
+					}
+					try {
+						bulkCount.add(service.addNewTrades(batch));
+					} catch (AdmissionRejectedException e) {
+						rejectedCount.increment();
+					} catch (ValidationException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		started.countDown();
+		//Bulk limit sampled during the run, it recovers once live ingest stops
+		long bulkLimitSum = 0;
+		for (int i = 0; i < 100; i++) {
+			Thread.sleep(RUN_MILLIS / 100);
+			bulkLimitSum += admission == null ? 0 : admission.getLimiter(TradeLane.BULK_INGEST).getLimit();
+		}
+		running.set(false);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		int total = 0;
+		for (int count : liveCounts) {
+			total += count;
+		}
+		long[] all = new long[total];
+		int offset = 0;
+		for (int t = 0; t < LIVE_THREADS; t++) {
+			System.arraycopy(liveLatencies.get(t), 0, all, offset, liveCounts[t]);
+			offset += liveCounts[t];
+		}
+		Arrays.sort(all);
+		System.out.println(name + ": live " + total + " trades, p50 " + micros(all, 0.50) + " us, p99 " + micros(all, 0.99)
+				+ " us, p99.9 " + micros(all, 0.999) + " us; bulk " + (bulkCount.sum() * 1000 / RUN_MILLIS) + " trades/sec"
+				+ ", rejected " + rejectedCount.sum());
+		if (admission != null) {
+			System.out.println(String.format("  average bulk limit %.1f, live overloaded %d, bulk overloaded %d", bulkLimitSum / 100.0,
+					admission.getLimiter(TradeLane.LIVE_INGEST).getOverloadedCount(),
+					admission.getLimiter(TradeLane.BULK_INGEST).getOverloadedCount()));
+		}
+	}
+
+	private static long micros(long[] sortedLatencies, double percentile) {
+		if (sortedLatencies.length == 0) {
+			return 0;
+		}
+		return TimeUnit.NANOSECONDS.toMicros(sortedLatencies[(int) Math.min(sortedLatencies.length - 1, sortedLatencies.length * percentile)]);
+	}
+
+	private static void awaitStart(CountDownLatch started) {
+		try {
+			started.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,51 @@
+/**
+* Benchmark for CachingTradeDao on top of a slow backing store
+* Not a JUNIT test, run the main method manually
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.pmk.demo.trade.dao.CachingTradeDao;
+import org.pmk.demo.trade.dao.LatencyTradeDao;
+import org.pmk.demo.trade.dao.TradeDao;
+import org.pmk.demo.trade.exception.ValidationException;
+import org.pmk.demo.trade.model.Trade;
+import org.pmk.demo.trade.service.TradeService;
+import org.pmk.demo.trade.validations.TradeMaturityDateValidator;
+import org.pmk.demo.trade.validations.TradeVersionValidator;
+
+public class CachingTradeDaoBenchmark {
+	private static final int TRADE_IDS = 200;
+	private static final int VERSIONS = 10;
+	private static final long LATENCY_MICROS = 200;
+
+	public static void main(String[] args) throws ValidationException {
+		run("Backing store only", new LatencyTradeDao(LATENCY_MICROS));
+
+		LatencyTradeDao backingDao = new LatencyTradeDao(LATENCY_MICROS);
+		CachingTradeDao cachingDao = new CachingTradeDao(backingDao);
+		run("CachingTradeDao", cachingDao);
+		System.out.println("Cache hits: " + cachingDao.getHitCount() + ", misses: " + cachingDao.getMissCount()
+				+ ", evictions: " + cachingDao.getEvictionCount() + ", backing store lookups: " + backingDao.getLookupCount());
+	}
+
+	//Add every trade with VERSIONS amendments through TradeService and report throughput
+	private static void run(String name, TradeDao tradeDao) throws ValidationException {
+		TradeService service = new TradeService(tradeDao, new TradeMaturityDateValidator(new TradeVersionValidator(null)));
+		long maturity = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
+		long start = System.nanoTime();
+		for (int version = 1; version <= VERSIONS; version++) {
+			for (int id = 0; id < TRADE_IDS; id++) {
+				service.addNewTrade(Trade.createTrade("T" + id, version, "CP-1", "B1", System.currentTimeMillis(), maturity, false));
+			}
+		}
+		long elapsedNanos = System.nanoTime() - start;
+		int trades = TRADE_IDS * VERSIONS;
+		System.out.println(name + ": " + trades + " addNewTrade in " + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + " ms, "
+				+ (trades * TimeUnit.SECONDS.toNanos(1) / elapsedNanos) + " trades/sec");
+	}
+}
@@ -0,0 +1,80 @@
+/**
+* Benchmark for JdbcTradeDao on embedded H2 database
+* Compares single upserts with batched upserts for different commit group sizes, and expiry UPDATE with read-modify-write
+* Not a JUNIT test, run the main method manually
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.pmk.demo.trade.dao.JdbcTradeDao;
+import org.pmk.demo.trade.model.Trade;
+
+public class JdbcTradeDaoBenchmark {
+	private static final int TRADES = 20_000;
+	private static final int[] COMMIT_GROUP_SIZES = {1, 100, 1000, 10_000};
+
+	private static int databaseCount = 0;
+
+	public static void main(String[] args) {
+		List<Trade> trades = createTrades();
+
+		JdbcTradeDao singleDao = createDao(JdbcTradeDao.DEFAULT_COMMIT_GROUP_SIZE);
+		long start = System.nanoTime();
+		for (Trade trade : trades) {
+			singleDao.addTrade(trade);
+		}
+		report("addTrade one by one", start);
+
+		for (int commitGroupSize : COMMIT_GROUP_SIZES) {
+			JdbcTradeDao batchDao = createDao(commitGroupSize);
+			start = System.nanoTime();
+			batchDao.addTrades(trades);
+			report("addTrades, commit group size " + commitGroupSize, start);
+		}
+
+		//Expiry as it was done by TradeService: read all matching trades and update them one by one
+		long maturityTs = TRADES / 2;
+		start = System.nanoTime();
+		Collection<Trade> expiring = singleDao.findTradesLessThanMaturityDate(maturityTs);
+		for (Trade trade : expiring) {
+			trade.setExpired(true);
+			singleDao.updateTrade(trade, trade);
+		}
+		report("Expiry read-modify-write of " + expiring.size() + " trades", start);
+
+		JdbcTradeDao expiryDao = createDao(JdbcTradeDao.DEFAULT_COMMIT_GROUP_SIZE);
+		expiryDao.addTrades(trades);
+		start = System.nanoTime();
+		int expired = expiryDao.expireTradesMaturingBefore(maturityTs);
+		report("Expiry set-based UPDATE of " + expired + " trades", start);
+	}
+
+	private static List<Trade> createTrades() {
+		List<Trade> trades = new ArrayList<>(TRADES);
+		for (int i = 0; i < TRADES; i++) {
+			trades.add(Trade.createTrade("T" + (i / 4), 1 + (i % 4), "CP-" + (i % 10), "B" + (i % 50), i, i, false));
+		}
+		return trades;
+	}
+
+	private static JdbcTradeDao createDao(int commitGroupSize) {
+		JdbcConnectionPool pool = JdbcConnectionPool.create("jdbc:h2:mem:jdbcTradeDaoBenchmark" + (databaseCount++)
+				+ ";DB_CLOSE_DELAY=-1", "sa", "");
+		JdbcTradeDao tradeDao = new JdbcTradeDao(pool, commitGroupSize);
+		tradeDao.createSchema();
+		return tradeDao;
+	}
+
+	private static void report(String name, long startNanos) {
+		long elapsedNanos = System.nanoTime() - startNanos;
+		System.out.println(name + ": " + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + " ms");
+	}
+}
@@ -0,0 +1,125 @@
+/**
+* Scaling benchmark of PartitionedTradeService against one TradeService shared by all the threads
+* Shared service - every thread calls addNewTrade on one InMemoryTradeDao (one monitor).
+* Partitioned service - as many partitions as threads, every thread submits its trades and waits for them once per window.
+* Not a JUNIT test, run the main method manually
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.benchmark;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.pmk.demo.trade.dao.InMemoryTradeDao;
+import org.pmk.demo.trade.model.Trade;
+import org.pmk.demo.trade.service.PartitionedTradeService;
+import org.pmk.demo.trade.service.TradeService;
+import org.pmk.demo.trade.validations.TradeMaturityDateValidator;
+import org.pmk.demo.trade.validations.TradeValidator;
+import org.pmk.demo.trade.validations.TradeVersionValidator;
+
+public class PartitionedTradeServiceBenchmark {
+	private static final int TRADES_PER_THREAD = 200_000;
+	//Submitted trades a partitioned caller has in flight before it waits
+	private static final int WINDOW = 1000;
+
+	public static void main(String[] args) throws Exception {
+		int cores = Runtime.getRuntime().availableProcessors();
+		System.out.println("Cores: " + cores);
+		for (int round = 0; round < 2; round++) {
+			System.out.println("Round " + (round + 1));
+			for (int threads = 1; threads <= Math.max(4, cores); threads *= 2) {
+				runShared(threads);
+				runPartitioned(threads);
+			}
+		}
+	}
+
+	private static TradeValidator validatorChain() {
+		return new TradeMaturityDateValidator(new TradeVersionValidator(null));
+	}
+
+	private static List<Trade> trades(int thread, long maturity) {
+		List<Trade> trades = new ArrayList<>(TRADES_PER_THREAD);
+		for (int i = 0; i < TRADES_PER_THREAD; i++) {
+			trades.add(Trade.createTrade("T" + thread + "-" + i, 1, "CP-1", "B1", System.currentTimeMillis(), maturity + i, false));
+		}
+		return trades;
+	}
+
+	private static void runShared(int threads) throws Exception {
+		TradeService service = new TradeService(new InMemoryTradeDao(), validatorChain());
+		long maturity = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
+		List<List<Trade>> tradesByThread = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			tradesByThread.add(trades(t, maturity));
+		}
+		long nanos = run(threads, t -> {
+			for (Trade trade : tradesByThread.get(t)) {
+				service.addNewTrade(trade);
+			}
+		});
+		report("Shared TradeService", threads, nanos);
+	}
+
+	private static void runPartitioned(int threads) throws Exception {
+		PartitionedTradeService service = new PartitionedTradeService(threads, validatorChain(), Clock.systemUTC());
+		long maturity = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
+		List<List<Trade>> tradesByThread = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			tradesByThread.add(trades(t, maturity));
+		}
+		long nanos = run(threads, t -> {
+			List<CompletableFuture<Void>> window = new ArrayList<>(WINDOW);
+			for (Trade trade : tradesByThread.get(t)) {
+				window.add(service.submitTrade(trade));
+				if (window.size() == WINDOW) {
+					CompletableFuture.allOf(window.toArray(new CompletableFuture<?>[0])).get();
+					window.clear();
+				}
+			}
+			CompletableFuture.allOf(window.toArray(new CompletableFuture<?>[0])).get();
+		});
+		service.shutdown();
+		report("Partitioned, " + threads + " partitions", threads, nanos);
+	}
+
+	@FunctionalInterface
+	private interface Producer {
+		void produce(int thread) throws Exception;
+	}
+
+	private static long run(int threads, Producer producer) throws InterruptedException, ExecutionException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<?>> futures = new ArrayList<>();
+		long start = System.nanoTime();
+		for (int t = 0; t < threads; t++) {
+			int thread = t;
+			futures.add(executor.submit(() -> {
+				producer.produce(thread);
+				return null;
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		long nanos = System.nanoTime() - start;
+		executor.shutdown();
+		return nanos;
+	}
+
+	private static void report(String name, int threads, long nanos) {
+		long trades = (long) threads * TRADES_PER_THREAD;
+		System.out.println(name + ", " + threads + " threads: " + trades + " trades in " + TimeUnit.NANOSECONDS.toMillis(nanos)
+				+ " ms, " + (trades * TimeUnit.SECONDS.toNanos(1) / nanos) + " trades/sec");
+	}
+}
@@ -0,0 +1,88 @@
+/**
+* Benchmark for TradeAggregationEngine against recomputing the aggregate from getTrades()
+* Not a JUNIT test, run the main method manually
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.benchmark;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.pmk.demo.trade.aggregation.MaturityBucketing;
+import org.pmk.demo.trade.aggregation.TradeAggregationEngine;
+import org.pmk.demo.trade.dao.InMemoryTradeDao;
+import org.pmk.demo.trade.exception.ValidationException;
+import org.pmk.demo.trade.model.Trade;
+import org.pmk.demo.trade.service.TradeService;
+import org.pmk.demo.trade.validations.TradeMaturityDateValidator;
+import org.pmk.demo.trade.validations.TradeVersionValidator;
+
+public class TradeAggregationEngineBenchmark {
+	private static final int TRADE_IDS = 100000;
+	private static final int VERSIONS = 3;
+	private static final int READS = 50;
+
+	public static void main(String[] args) throws ValidationException {
+		long plainIngestNanos = ingest(newService(), null);
+
+		TradeService service = newService();
+		TradeAggregationEngine engine = new TradeAggregationEngine();
+		engine.register("bookByMonth", Trade::getBookId, MaturityBucketing.MATURITY_MONTH);
+		engine.register("counterPartyByDays", Trade::getCounterPartyId, MaturityBucketing.DAYS_TO_MATURITY);
+		long aggregatedIngestNanos = ingest(service, engine);
+		int trades = TRADE_IDS * VERSIONS;
+		System.out.println("Ingest of " + trades + " trades without aggregation: " + TimeUnit.NANOSECONDS.toMillis(plainIngestNanos)
+				+ " ms, with 2 aggregates: " + TimeUnit.NANOSECONDS.toMillis(aggregatedIngestNanos) + " ms");
+
+		long start = System.nanoTime();
+		long checksum = 0;
+		for (int i = 0; i < READS; i++) {
+			checksum += engine.snapshot("bookByMonth").getCounts().size();
+		}
+		long snapshotNanos = (System.nanoTime() - start) / READS;
+
+		start = System.nanoTime();
+		for (int i = 0; i < READS; i++) {
+			checksum += recompute(service).size();
+		}
+		long recomputeNanos = (System.nanoTime() - start) / READS;
+		System.out.println("Book by maturity month - snapshot: " + TimeUnit.NANOSECONDS.toMicros(snapshotNanos) + " us, recompute from getTrades: "
+				+ TimeUnit.NANOSECONDS.toMicros(recomputeNanos) + " us (checksum " + checksum + ")");
+	}
+
+	private static TradeService newService() {
+		return new TradeService(new InMemoryTradeDao(), new TradeMaturityDateValidator(new TradeVersionValidator(null)));
+	}
+
+	private static long ingest(TradeService service, TradeAggregationEngine engine) throws ValidationException {
+		service.setAggregationEngine(engine);
+		long now = System.currentTimeMillis();
+		long start = System.nanoTime();
+		for (int version = 1; version <= VERSIONS; version++) {
+			for (int id = 0; id < TRADE_IDS; id++) {
+				service.addNewTrade(Trade.createTrade("T" + id, version, "CP-" + (id % 50), "B" + ((id + version) % 20), now,
+						now + TimeUnit.DAYS.toMillis(1 + (id * 31 + version) % 720), false));
+			}
+		}
+		return System.nanoTime() - start;
+	}
+
+	//What a reader has to do without the engine - scan all the versions and count the latest live ones
+	private static Map<String, Map<Long, Long>> recompute(TradeService service) {
+		Map<String, Map<Long, Long>> counts = new HashMap<>();
+		String previousTradeId = null;
+		for (Trade trade : service.getTrades()) {
+			if (!trade.getTradeId().equals(previousTradeId) && !trade.isExpired()) {
+				LocalDate maturity = LocalDate.ofEpochDay(Math.floorDiv(trade.getMaturityDateTimeStamp(), TimeUnit.DAYS.toMillis(1)));
+				counts.computeIfAbsent(trade.getBookId(), book -> new HashMap<>())
+						.merge(maturity.getYear() * 100L + maturity.getMonthValue(), 1L, Long::sum);
+			}
+			previousTradeId = trade.getTradeId();
+		}
+		return counts;
+	}
+}
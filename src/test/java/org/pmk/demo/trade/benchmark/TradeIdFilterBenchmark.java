@@ -0,0 +1,78 @@
+/**
+* Benchmark for the tradeId filter of JdbcTradeDao on a new tradeId heavy ingest
+* Every addNewTrade does two latest version lookups (version validator and TradeService), for a new tradeId both are
+* answered by the filter. Embedded H2 has no network round trip, so savings with a remote database are much larger.
+* Not a JUNIT test, run the main method manually
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.pmk.demo.trade.dao.JdbcTradeDao;
+import org.pmk.demo.trade.exception.ValidationException;
+import org.pmk.demo.trade.model.Trade;
+import org.pmk.demo.trade.service.TradeService;
+import org.pmk.demo.trade.validations.TradeMaturityDateValidator;
+import org.pmk.demo.trade.validations.TradeVersionValidator;
+
+public class TradeIdFilterBenchmark {
+	private static final int EXISTING_TRADES = 100_000;
+	private static final int NEW_TRADES = 50_000;
+	//Share of ingested trades which are amendments of existing tradeIds
+	private static final int AMENDMENT_PERCENT = 10;
+
+	private static int databaseCount = 0;
+
+	public static void main(String[] args) throws ValidationException {
+		for (int round = 0; round < 2; round++) {
+			System.out.println("Round " + (round + 1));
+			run("Without tradeId filter", 0);
+			run("With tradeId filter", JdbcTradeDao.DEFAULT_FILTER_INITIAL_CAPACITY);
+		}
+	}
+
+	private static void run(String name, int filterInitialCapacity) throws ValidationException {
+		JdbcConnectionPool pool = JdbcConnectionPool.create("jdbc:h2:mem:tradeIdFilterBenchmark" + (databaseCount++)
+				+ ";DB_CLOSE_DELAY=-1", "sa", "");
+		JdbcTradeDao tradeDao = new JdbcTradeDao(pool, JdbcTradeDao.DEFAULT_COMMIT_GROUP_SIZE, filterInitialCapacity,
+				JdbcTradeDao.DEFAULT_FILTER_FALSE_POSITIVE_PROBABILITY);
+		tradeDao.createSchema();
+		long maturity = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
+		List<Trade> existing = new ArrayList<>(EXISTING_TRADES);
+		for (int i = 0; i < EXISTING_TRADES; i++) {
+			existing.add(Trade.createTrade("E" + i, 1, "CP-1", "B1", System.currentTimeMillis(), maturity, false));
+		}
+		tradeDao.addTrades(existing);
+		//Recovery - filter is built from the table
+		long start = System.nanoTime();
+		tradeDao.rebuildTradeIdFilter();
+		long rebuildNanos = System.nanoTime() - start;
+
+		TradeService service = new TradeService(tradeDao, new TradeMaturityDateValidator(new TradeVersionValidator(null)));
+		start = System.nanoTime();
+		for (int i = 0; i < NEW_TRADES; i++) {
+			Trade trade = i % 100 < AMENDMENT_PERCENT
+					? Trade.createTrade("E" + i, 2, "CP-1", "B1", System.currentTimeMillis(), maturity, false)
+					: Trade.createTrade("N" + i, 1, "CP-1", "B1", System.currentTimeMillis(), maturity, false);
+			service.addNewTrade(trade);
+		}
+		long elapsedNanos = System.nanoTime() - start;
+		System.out.println(name + ": " + NEW_TRADES + " addNewTrade in " + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + " ms, "
+				+ (NEW_TRADES * TimeUnit.SECONDS.toNanos(1) / elapsedNanos) + " trades/sec");
+		if (tradeDao.getTradeIdFilter() != null) {
+			System.out.println("  filter rebuild of " + EXISTING_TRADES + " tradeIds: " + TimeUnit.NANOSECONDS.toMillis(rebuildNanos) + " ms, "
+					+ "checks: " + tradeDao.getFilterCheckCount() + ", lookups skipped: " + tradeDao.getFilterNegativeCount()
+					+ ", false positives: " + tradeDao.getFilterFalsePositiveCount()
+					+ String.format(" (observed rate %.4f, expected %.4f)", tradeDao.getFilterFalsePositiveRate(),
+							tradeDao.getTradeIdFilter().getExpectedFalsePositiveProbability())
+					+ ", stages: " + tradeDao.getTradeIdFilter().getStageCount() + ", " + tradeDao.getTradeIdFilter().getSizeInBytes() / 1024 + " KB");
+		}
+		pool.dispose();
+	}
+}
@@ -0,0 +1,178 @@
+/**
+* Memory benchmark of the delta encoded version history of InMemoryTradeDao against a TreeSet of full Trade versions
+* Amendment distribution - 70% of trades have one version, 20% 2-5 versions, 8% 6-20 versions, 2% 21-60 versions.
+* An amendment moves the created time and sometimes the maturity, counterparty or book. Every version has its own String
+* instances, as trades parsed from the input do. Memory is measured as heap retained by the store.
+* Run with a fixed heap e.g. -Xmx2g
+* Not a JUNIT test, run the main method manually
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.benchmark;
+
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.pmk.demo.trade.dao.InMemoryTradeDao;
+import org.pmk.demo.trade.model.Trade;
+
+public class VersionHistoryBenchmark {
+	private static final int TRADES = 200000;
+	private static final int LOOKUPS = 1000000;
+	private static final int SCANS = 5;
+	//2026-10-19T00:00:00Z
+	private static final long NOW = 1792368000000L;
+	private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+	private static final String[] TRADE_IDS = new String[TRADES];
+
+	//Retained so that heap measurement sees the store
+	private static Object store;
+
+	public static void main(String[] args) {
+		for (int i = 0; i < TRADES; i++) {
+			TRADE_IDS[i] = "IRS-20261019-" + String.format("%06d", i);
+		}
+		int[] versionCounts = versionCounts(new Random(42));
+		long versions = 0;
+		int maxVersions = 0;
+		for (int versionCount : versionCounts) {
+			versions += versionCount;
+			maxVersions = Math.max(maxVersions, versionCount);
+		}
+		System.out.println(TRADES + " trades, " + versions + " versions, up to " + maxVersions + " versions per trade");
+		for (int round = 0; round < 2; round++) {
+			System.out.println("Round " + (round + 1));
+			deltaEncoded(versionCounts, versions);
+			treeSet(versionCounts, versions);
+		}
+	}
+
+	private static int[] versionCounts(Random random) {
+		int[] versionCounts = new int[TRADES];
+		for (int i = 0; i < TRADES; i++) {
+			int bucket = random.nextInt(100);
+			if (bucket < 70) {
+				versionCounts[i] = 1;
+			} else if (bucket < 90) {
+				versionCounts[i] = 2 + random.nextInt(4);
+			} else if (bucket < 98) {
+				versionCounts[i] = 6 + random.nextInt(15);
+			} else {
+				versionCounts[i] = 21 + random.nextInt(40);
+			}
+		}
+		return versionCounts;
+	}
+
+	//Versions of one trade, same seed gives the same versions to every store
+	private static Trade[] versions(int trade, int versionCount, Random random) {
+		Trade[] versions = new Trade[versionCount];
+		int counterParty = random.nextInt(500);
+		int book = random.nextInt(50);
+		long created = NOW - DAY * 30 + random.nextInt(1000000);
+		long maturity = NOW + DAY * (1 + random.nextInt(3650));
+		for (int v = 0; v < versionCount; v++) {
+			if (v > 0) {
+				created += 1 + random.nextInt(3600000);
+				int change = random.nextInt(100);
+				if (change < 20) {
+					maturity += DAY * (random.nextInt(61) - 30);
+				} else if (change < 30) {
+					counterParty = random.nextInt(500);
+				} else if (change < 35) {
+					book = random.nextInt(50);
+				}
+			}
+			versions[v] = Trade.createTrade(new String(TRADE_IDS[trade]), v + 1, "CP-" + counterParty, "B" + book, created, maturity, false);
+		}
+		return versions;
+	}
+
+	private static void deltaEncoded(int[] versionCounts, long versions) {
+		Random random = new Random(7);
+		long heapBefore = usedHeap();
+		long start = System.nanoTime();
+		InMemoryTradeDao dao = new InMemoryTradeDao();
+		for (int i = 0; i < TRADES; i++) {
+			for (Trade trade : versions(i, versionCounts[i], random)) {
+				dao.addTrade(trade);
+			}
+		}
+		long insertNanos = System.nanoTime() - start;
+		store = dao;
+		long bytesPerVersion = (usedHeap() - heapBefore) / versions;
+
+		start = System.nanoTime();
+		long found = 0;
+		for (int i = 0; i < LOOKUPS; i++) {
+			found += dao.getTradeByIdLatestVersion(TRADE_IDS[(int) ((i * 7919L) % TRADES)]) == null ? 0 : 1;
+		}
+		long lookupNanos = System.nanoTime() - start;
+
+		long scanned = 0;
+		start = System.nanoTime();
+		for (int i = 0; i < SCANS; i++) {
+			scanned = 0;
+			for (Trade trade : dao.getAllTrades()) {
+				scanned += trade.getTradeVersion() > 0 ? 1 : 0;
+			}
+		}
+		long scanNanos = (System.nanoTime() - start) / SCANS;
+		report("InMemoryTradeDao (delta encoded)", insertNanos, lookupNanos, found, scanNanos, scanned, bytesPerVersion);
+		store = null;
+	}
+
+	private static void treeSet(int[] versionCounts, long versions) {
+		Random random = new Random(7);
+		long heapBefore = usedHeap();
+		long start = System.nanoTime();
+		TreeSet<Trade> tree = new TreeSet<>();
+		for (int i = 0; i < TRADES; i++) {
+			for (Trade trade : versions(i, versionCounts[i], random)) {
+				tree.add(trade);
+			}
+		}
+		long insertNanos = System.nanoTime() - start;
+		store = tree;
+		long bytesPerVersion = (usedHeap() - heapBefore) / versions;
+
+		start = System.nanoTime();
+		long found = 0;
+		for (int i = 0; i < LOOKUPS; i++) {
+			String key = TRADE_IDS[(int) ((i * 7919L) % TRADES)];
+			Trade trade = tree.ceiling(Trade.createTrade(key, Integer.MAX_VALUE, null, null, 0, 0, false));
+			found += trade != null && trade.getTradeId().equals(key) ? 1 : 0;
+		}
+		long lookupNanos = System.nanoTime() - start;
+
+		long scanned = 0;
+		start = System.nanoTime();
+		for (int i = 0; i < SCANS; i++) {
+			scanned = 0;
+			for (Trade trade : tree) {
+				scanned += trade.getTradeVersion() > 0 ? 1 : 0;
+			}
+		}
+		long scanNanos = (System.nanoTime() - start) / SCANS;
+		report("TreeSet<Trade> (full versions)", insertNanos, lookupNanos, found, scanNanos, scanned, bytesPerVersion);
+		store = null;
+	}
+
+	private static void report(String name, long insertNanos, long lookupNanos, long found, long scanNanos, long scanned, long bytesPerVersion) {
+		System.out.println(name + ": insert " + TimeUnit.NANOSECONDS.toMillis(insertNanos) + " ms, "
+				+ LOOKUPS + " latest version lookups " + TimeUnit.NANOSECONDS.toMillis(lookupNanos) + " ms (found " + found + "), "
+				+ "getAllTrades " + TimeUnit.NANOSECONDS.toMillis(scanNanos) + " ms (" + scanned + " versions), "
+				+ "~" + bytesPerVersion + " bytes/version");
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,144 @@
+/**
+* Unit Test for AdaptiveRadixTree, checked against TreeMap
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+
+package org.pmk.demo.trade.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+public class AdaptiveRadixTreeTest {
+
+	//Value which carries its key
+	private static final class Entry {
+		private final String key;
+		private final int value;
+
+		Entry(String key, int value) {
+			this.key = key;
+			this.value = value;
+		}
+
+		String getKey() {
+			return key;
+		}
+	}
+
+	private static Integer valueOf(Entry entry) {
+		return entry == null ? null : entry.value;
+	}
+
+	@Test
+	//Put, replace, get and remove
+	public void testPutGetRemove() {
+		AdaptiveRadixTree<Entry> tree = new AdaptiveRadixTree<>(Entry::getKey);
+		assertNull(tree.put(new Entry("T1", 1)));
+		assertNull(tree.put(new Entry("T10", 10)));
+		assertNull(tree.put(new Entry("T2", 2)));
+		assertEquals(Integer.valueOf(1), valueOf(tree.put(new Entry("T1", 11))));
+
+		assertEquals(3, tree.size());
+		assertEquals(Integer.valueOf(11), valueOf(tree.get("T1")));
+		assertNull(tree.get("T"));
+		assertNull(tree.get("T100"));
+		assertEquals(Integer.valueOf(2), valueOf(tree.computeIfAbsent("T2", key -> new Entry(key, 0))));
+		assertEquals(Integer.valueOf(3), valueOf(tree.computeIfAbsent("T3", key -> new Entry(key, 3))));
+
+		assertEquals(Integer.valueOf(10), valueOf(tree.remove("T10")));
+		assertNull(tree.remove("T10"));
+		assertEquals(3, tree.size());
+		assertEquals(Integer.valueOf(2), valueOf(tree.get("T2")));
+	}
+
+	@Test
+	//Iteration order is String.compareTo order, also for chars outside ASCII
+	public void testOrder() {
+		List<String> keys = Arrays.asList("T10", "", "T1", "Té", "T\u007f", "T￿", "TĀ", "T~", "A", "T1\u0000");
+		AdaptiveRadixTree<String> tree = new AdaptiveRadixTree<>(key -> key);
+		for (String key : keys) {
+			tree.put(key);
+		}
+		List<String> sorted = new ArrayList<>(keys);
+		sorted.sort(null);
+
+		List<String> values = new ArrayList<>();
+		tree.forEachValue(values::add);
+		assertEquals(sorted, values);
+
+		List<String> treeKeys = new ArrayList<>();
+		tree.forEach((key, value) -> treeKeys.add(key));
+		assertEquals(sorted, treeKeys);
+	}
+
+	@Test
+	//Random puts and removes, node growth and shrink, prefix and range iteration match TreeMap
+	public void testAgainstTreeMap() {
+		Random random = new Random(42);
+		AdaptiveRadixTree<Entry> tree = new AdaptiveRadixTree<>(Entry::getKey);
+		TreeMap<String, Integer> expected = new TreeMap<>();
+		String alphabet = "AB01T-é中";
+		for (int i = 0; i < 20000; i++) {
+			StringBuilder key = new StringBuilder();
+			int length = random.nextInt(6);
+			for (int c = 0; c < length; c++) {
+				key.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			if (random.nextInt(3) == 0) {
+				assertEquals(expected.remove(key.toString()), valueOf(tree.remove(key.toString())));
+			} else {
+				assertEquals(expected.put(key.toString(), i), valueOf(tree.put(new Entry(key.toString(), i))));
+			}
+		}
+		//Wide fan out for Node48 and Node256
+		for (int c = 0; c < 300; c++) {
+			String key = "W" + (char) c;
+			assertEquals(expected.put(key, c), valueOf(tree.put(new Entry(key, c))));
+		}
+		for (int c = 0; c < 290; c++) {
+			String key = "W" + (char) c;
+			assertEquals(expected.remove(key), valueOf(tree.remove(key)));
+		}
+		assertEquals(expected.size(), tree.size());
+		for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+			assertEquals(entry.getValue(), valueOf(tree.get(entry.getKey())));
+		}
+
+		List<Integer> values = new ArrayList<>();
+		tree.forEachValue(entry -> values.add(entry.value));
+		assertEquals(new ArrayList<>(expected.values()), values);
+
+		for (String prefix : Arrays.asList("", "A", "T0", "Bé", "中A", "W", "ZZ")) {
+			List<Integer> prefixValues = new ArrayList<>();
+			tree.forEachValueWithPrefix(prefix, entry -> prefixValues.add(entry.value));
+			List<Integer> expectedValues = new ArrayList<>();
+			for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+				if (entry.getKey().startsWith(prefix)) {
+					expectedValues.add(entry.getValue());
+				}
+			}
+			assertEquals(expectedValues, prefixValues, "prefix " + prefix);
+		}
+
+		String[][] ranges = {{"A", "B"}, {"0", "T"}, {"A1", "A1-"}, {"", "￿"}, {"Té", null}, {null, "1"}, {"B", "A"}};
+		for (String[] range : ranges) {
+			List<Integer> rangeValues = new ArrayList<>();
+			tree.forEachValueInRange(range[0], range[1], entry -> rangeValues.add(entry.value));
+			Map<String, Integer> expectedRange = range[0] == null ? expected.headMap(range[1])
+					: range[1] == null ? expected.tailMap(range[0])
+					: range[0].compareTo(range[1]) > 0 ? new TreeMap<>() : expected.subMap(range[0], range[1]);
+			assertEquals(new ArrayList<>(expectedRange.values()), rangeValues, "range " + Arrays.toString(range));
+		}
+	}
+}
@@ -0,0 +1,166 @@
+/**
+* Unit Test for CachingTradeDao
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+
+package org.pmk.demo.trade.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pmk.demo.trade.model.Trade;
+
+public class CachingTradeDaoTest {
+	private LatencyTradeDao backingDao;
+	private CachingTradeDao tradeDao;
+	Trade tradeT11;
+	Trade tradeT12;
+
+	@BeforeEach
+	//Create CachingTradeDao on top of a fake backing store without latency
+	public void setUp () {
+		backingDao = new LatencyTradeDao(0);
+		tradeDao = new CachingTradeDao(backingDao, 2);
+		tradeT11 = Trade.createTrade("T1", 1, "CP-1", "B40", System.currentTimeMillis(), System.currentTimeMillis()+23000, false);
+		tradeT12 = Trade.createTrade("T1", 2, "CP-2", "B40", System.currentTimeMillis(), System.currentTimeMillis()+23000, false);
+	}
+
+	@AfterEach
+	//Reset before next test
+	public void tearDown () {
+		backingDao = null;
+		tradeDao = null;
+		tradeT11 = null;
+		tradeT12 = null;
+	}
+
+	@Test
+	//Second lookup is served from the cache
+	public void testReadThrough() {
+		backingDao.addTrade(tradeT11);
+		assertSame(tradeT11, tradeDao.getTradeByIdLatestVersion("T1"));
+		assertSame(tradeT11, tradeDao.getTradeByIdLatestVersion("T1"));
+		assertEquals(1, backingDao.getLookupCount());
+		assertEquals(1, tradeDao.getHitCount());
+		assertEquals(1, tradeDao.getMissCount());
+	}
+
+	@Test
+	//Unknown tradeId is cached as absent
+	public void testNegativeCaching() {
+		assertNull(tradeDao.getTradeByIdLatestVersion("T9"));
+		assertNull(tradeDao.getTradeByIdLatestVersion("T9"));
+		assertEquals(1, backingDao.getLookupCount());
+	}
+
+	@Test
+	//addTrade and updateTrade replace cached latest version (including negative entry) without going to the backing store
+	public void testWriteThrough() {
+		assertNull(tradeDao.getTradeByIdLatestVersion("T1"));
+		tradeDao.addTrade(tradeT11);
+		assertSame(tradeT11, tradeDao.getTradeByIdLatestVersion("T1"));
+		tradeDao.addTrade(tradeT12);
+		assertSame(tradeT12, tradeDao.getTradeByIdLatestVersion("T1"));
+
+		Trade tradeT12Updated = Trade.createTrade("T1", 2, "CP-3", "B41", System.currentTimeMillis(), System.currentTimeMillis()+23000, false);
+		tradeDao.updateTrade(tradeT12, tradeT12Updated);
+		assertSame(tradeT12Updated, tradeDao.getTradeByIdLatestVersion("T1"));
+		assertEquals(1, backingDao.getLookupCount());
+	}
+
+	@Test
+	//Least recently used tradeId is evicted when cache is full
+	public void testLruEviction() {
+		tradeDao.getTradeByIdLatestVersion("T1");
+		tradeDao.getTradeByIdLatestVersion("T2");
+		tradeDao.getTradeByIdLatestVersion("T1");
+		tradeDao.getTradeByIdLatestVersion("T3");	//Evicts T2
+
+		assertEquals(2, tradeDao.getSize());
+		assertEquals(1, tradeDao.getEvictionCount());
+		tradeDao.getTradeByIdLatestVersion("T1");
+		assertEquals(3, backingDao.getLookupCount());
+		tradeDao.getTradeByIdLatestVersion("T2");
+		assertEquals(4, backingDao.getLookupCount());
+	}
+
+	@Test
+	//Concurrent misses for the same tradeId result in a single backing store lookup
+	public void testStampedeProtection() throws Exception {
+		LatencyTradeDao slowDao = new LatencyTradeDao(50_000);
+		slowDao.addTrade(tradeT11);
+		CachingTradeDao cachingDao = new CachingTradeDao(slowDao);
+
+		int threads = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Trade>> results = new ArrayList<>();
+		for (int i = 0; i < threads; i++) {
+			results.add(executor.submit(() -> {
+				start.await();
+				return cachingDao.getTradeByIdLatestVersion("T1");
+			}));
+		}
+		start.countDown();
+		for (Future<Trade> result : results) {
+			assertSame(tradeT11, result.get());
+		}
+		executor.shutdown();
+		assertEquals(1, slowDao.getLookupCount());
+	}
+
+	@Test
+	//Expired tradeIds are invalidated so next read goes to the backing store
+	public void testExpiryInvalidatesCache() {
+		tradeDao.addTrade(tradeT11);
+		tradeDao.getTradeByIdLatestVersion("T1");
+
+		assertEquals(1, tradeDao.expireTradesMaturingBefore(tradeT11.getMaturityDateTimeStamp() + 1));
+		assertEquals(0, tradeDao.getSize());
+		assertTrue(tradeDao.getTradeByIdLatestVersion("T1").isExpired());
+		assertEquals(2, backingDao.getLookupCount());
+	}
+
+	@Test
+	//No cached trade matures before the expiry time, so the backing store expires without collecting tradeIds
+	public void testExpiryWithoutCachedTradesUsesBulkPath() {
+		List<Boolean> tradeIdsCollected = new ArrayList<>();
+		CachingTradeDao cachingDao = new CachingTradeDao(new LatencyTradeDao(0) {
+			@Override
+			public int expireTradesMaturingBefore(long maturityDateTs, int maxTrades, Collection<String> expiredTradeIds) {
+				tradeIdsCollected.add(expiredTradeIds != null);
+				return super.expireTradesMaturingBefore(maturityDateTs, maxTrades, expiredTradeIds);
+			}
+		}, 2);
+		Trade tradeT2 = Trade.createTrade("T2", 1, "CP-1", "B40", System.currentTimeMillis(), tradeT11.getMaturityDateTimeStamp() + 60000, false);
+		cachingDao.addTrade(tradeT11);
+		cachingDao.addTrade(tradeT2);
+		cachingDao.getTradeByIdLatestVersion("T2");
+
+		assertEquals(1, cachingDao.expireTradesMaturingBefore(tradeT11.getMaturityDateTimeStamp() + 1));
+		assertEquals(1, cachingDao.getSize());
+		assertTrue(cachingDao.getTradeByIdLatestVersion("T1").isExpired());
+
+		//Cached T1 is not expired yet, its tradeId is collected to invalidate it
+		cachingDao.addTrade(Trade.createTrade("T1", 2, "CP-1", "B40", System.currentTimeMillis(), tradeT11.getMaturityDateTimeStamp(), false));
+		assertEquals(1, cachingDao.expireTradesMaturingBefore(tradeT11.getMaturityDateTimeStamp() + 1));
+		assertEquals(Boolean.FALSE, tradeIdsCollected.get(0));
+		assertEquals(Boolean.TRUE, tradeIdsCollected.get(1));
+		assertEquals(1, cachingDao.getSize());
+	}
+}
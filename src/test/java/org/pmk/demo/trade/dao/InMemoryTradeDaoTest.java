@@ -7,10 +7,16 @@
 
 package org.pmk.demo.trade.dao;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.jupiter.api.AfterEach;
@@ -84,4 +90,101 @@ public class InMemoryTradeDaoTest {
 		assertTrue(hasNew.get());
 		assertFalse(hasOriginal.get());	
     }
+    
+    @Test
+    //Test expiry is done in place and only trades which are not expired yet are counted
+    public void testExpireTradesMaturingBefore() {
+    	tradeDao.addTrade(tradeT31);
+    	tradeDao.addTrade(tradeT32);
+    	tradeDao.addTrade(tradeT11);
+    	tradeDao.addTrade(tradeT22);
+    	
+    	List<String> expiredTradeIds = new ArrayList<>();
+    	int expiredCount = tradeDao.expireTradesMaturingBefore(tradeT11.getMaturityDateTimeStamp() + 1, expiredTradeIds);
+    	
+    	assertEquals(2, expiredCount);
+    	assertEquals(Arrays.asList("T3", "T1"), expiredTradeIds);
+    	assertTrue(tradeDao.getTradeByIdLatestVersion("T3").isExpired());
+    	assertTrue(tradeDao.getTradeByIdLatestVersion("T1").isExpired());
+    	assertEquals(0, tradeDao.expireTradesMaturingBefore(tradeT11.getMaturityDateTimeStamp() + 1));
+    }
+    
+    @Test
+    //Test replaced trade is not expired by the expiry run
+    public void testExpireAfterUpdateTrade() {
+    	tradeDao.addTrade(tradeT22_updated);
+    	Trade tradeT22_longer = Trade.createTrade("T2", 2, "CP-5", "B65", System.currentTimeMillis(), tradeT22_updated.getMaturityDateTimeStamp() + 10000, false);
+    	tradeDao.updateTrade(tradeT22_updated, tradeT22_longer);
+    	
+    	assertEquals(0, tradeDao.expireTradesMaturingBefore(tradeT22_updated.getMaturityDateTimeStamp() + 1));
+    	assertFalse(tradeDao.getTradeByIdLatestVersion("T2").isExpired());
+    }
+    
+    @Test
+    //Test expiry limited to max trades and maturity profile of trades not expired yet
+    public void testExpireInChunksAndMaturityProfile() {
+    	long now = System.currentTimeMillis();
+    	for (int i = 0; i < 5; i++) {
+    		tradeDao.addTrade(Trade.createTrade("T" + i, 1, "CP-1", "B1", now, now + 1000, false));
+    	}
+    	tradeDao.addTrade(Trade.createTrade("T9", 1, "CP-1", "B1", now, now + 3000, false));
+    	
+    	assertArrayEquals(new int[] {5, 0, 1}, tradeDao.getMaturityProfile(now + 500, 1000, 3));
+    	assertEquals(2, tradeDao.expireTradesMaturingBefore(now + 2000, 2, null));
+    	assertEquals(2, tradeDao.expireTradesMaturingBefore(now + 2000, 2, null));
+    	assertArrayEquals(new int[] {1, 0, 1}, tradeDao.getMaturityProfile(now + 500, 1000, 3));
+    	assertEquals(1, tradeDao.expireTradesMaturingBefore(now + 2000, 2, null));
+    }
+    
+    @Test
+    //Test compare and set of the latest version
+    public void testUpsertVersioned() {
+    	assertFalse(tradeDao.upsertVersioned(tradeT31, 0));
+    	assertTrue(tradeDao.upsertVersioned(tradeT31, TradeDao.NO_VERSION));
+    	assertTrue(tradeDao.upsertVersioned(tradeT32, 1));
+    	assertFalse(tradeDao.upsertVersioned(tradeT31, 2));	//Lower version
+    	assertFalse(tradeDao.upsertVersioned(tradeT32, 1));	//Stale expected version
+    	
+    	Trade tradeT32_updated = Trade.createTrade("T3", 2, "CP-9", "B40", System.currentTimeMillis(), System.currentTimeMillis()+10000, false);
+    	assertTrue(tradeDao.upsertVersioned(tradeT32_updated, 2));
+    	assertEquals(2, tradeDao.getAllTrades().size());
+    	assertEquals(tradeT32_updated, tradeDao.getTradeByIdLatestVersion("T3"));
+    }
+    
+    @Test
+    //Test as-of lookups of a trade and of the whole book
+    public void testGetTradeAsOf() {
+    	Trade t11 = Trade.createTrade("T1", 1, "CP-1", "B1", 1000L, 90000L, false);
+    	Trade t12 = Trade.createTrade("T1", 2, "CP-1", "B2", 3000L, 90000L, false);
+    	Trade t21 = Trade.createTrade("T2", 1, "CP-2", "B1", 2000L, 90000L, false);
+    	tradeDao.addTrade(t12);
+    	tradeDao.addTrade(t21);
+    	tradeDao.addTrade(t11);
+    	
+    	assertNull(tradeDao.getTradeAsOf("T1", 999L));
+    	assertEquals(t11, tradeDao.getTradeAsOf("T1", 2999L));
+    	assertEquals(t12, tradeDao.getTradeAsOf("T1", 3000L));
+    	assertNull(tradeDao.getTradeAsOf("T9", 3000L));
+    	
+    	assertEquals(Arrays.asList(t11), new ArrayList<>(tradeDao.getBookAsOf(1500L)));
+    	assertEquals(Arrays.asList(t11, t21), new ArrayList<>(tradeDao.getBookAsOf(2500L)));
+    	assertEquals(Arrays.asList(t12, t21), new ArrayList<>(tradeDao.getBookAsOf(5000L)));
+    }
+    
+    @Test
+    //Test prefix and range scans keep Trade compareTo order
+    public void testFindTradesByIdPrefixAndRange() {
+    	Trade tradeT101 = Trade.createTrade("T10", 1, "CP-1", "B1", System.currentTimeMillis(), System.currentTimeMillis()+10000, false);
+    	tradeDao.addTrade(tradeT31);
+    	tradeDao.addTrade(tradeT11);
+    	tradeDao.addTrade(tradeT32);
+    	tradeDao.addTrade(tradeT101);
+    	tradeDao.addTrade(tradeT22);
+    	
+    	assertEquals(Arrays.asList(tradeT11, tradeT101), new ArrayList<>(tradeDao.findTradesByIdPrefix("T1")));
+    	assertEquals(Arrays.asList(tradeT101, tradeT22), new ArrayList<>(tradeDao.findTradesByIdRange("T10", "T3")));
+    	assertEquals(Arrays.asList(tradeT32, tradeT31), new ArrayList<>(tradeDao.findTradesByIdRange("T3", null)));
+    	assertEquals(5, tradeDao.findTradesByIdPrefix("").size());
+    	assertTrue(tradeDao.findTradesByIdPrefix("X").isEmpty());
+    }
 }
@@ -0,0 +1,296 @@
+/**
+* Unit Test for JdbcTradeDao using embedded H2 database
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+
+package org.pmk.demo.trade.dao;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pmk.demo.trade.model.Trade;
+
+public class JdbcTradeDaoTest {
+	private static int databaseCount = 0;
+
+	private JdbcDataSource dataSource;
+	private JdbcTradeDao tradeDao;
+	Trade tradeT31;
+	Trade tradeT32;
+	Trade tradeT11;
+	Trade tradeT22;
+	Trade tradeT22_updated;
+
+	@BeforeEach
+	//Create JdbcTradeDao on a new in-memory H2 database
+	public void setUp () {
+		dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:jdbcTradeDaoTest" + (databaseCount++) + ";DB_CLOSE_DELAY=-1");
+		tradeDao = new JdbcTradeDao(dataSource, 2);
+		tradeDao.createSchema();
+
+		tradeT31 = Trade.createTrade("T3", 1, "CP-1", "B59", 1000L, 25000L, false);
+		tradeT32 = Trade.createTrade("T3", 2, "CP-4", "B40", 2000L, 10000L, false);
+		tradeT11 = Trade.createTrade("T1", 1, "CP-1", "B40", 3000L, 23000L, false);
+		tradeT22 = Trade.createTrade("T2", 2, "CP-3", "B33", 4000L, 30000L, true);
+		tradeT22_updated = Trade.createTrade("T2", 2, "CP-5", "B65", 5000L, 30000L, false);
+	}
+
+	@AfterEach
+	//Reset before next test
+	public void tearDown () {
+		tradeDao = null;
+		dataSource = null;
+		tradeT31 = null;
+		tradeT32 = null;
+		tradeT11 = null;
+		tradeT22 = null;
+		tradeT22_updated = null;
+	}
+
+	@Test
+	//Trades are read back sorted by tradeId (ascending) and then tradeVersion (descending)
+	public void testAddTradeAndGetAllTrades() {
+		tradeDao.addTrade(tradeT31);
+		tradeDao.addTrade(tradeT32);
+		tradeDao.addTrade(tradeT11);
+		tradeDao.addTrade(tradeT22);
+
+		List<Trade> expected = Arrays.asList(tradeT11, tradeT22, tradeT32, tradeT31);
+		assertEquals(expected, new ArrayList<>(tradeDao.getAllTrades()));
+	}
+
+	@Test
+	//Same tradeId and version replaces the existing row
+	public void testUpdateTrade() {
+		tradeDao.addTrade(tradeT22);
+		tradeDao.updateTrade(tradeT22, tradeT22_updated);
+
+		Collection<Trade> trades = tradeDao.getAllTrades();
+		assertEquals(1, trades.size());
+		assertTrue(trades.contains(tradeT22_updated));
+	}
+
+	@Test
+	//Upsert does not write a version lower than the latest one
+	public void testLowerVersionNotWritten() {
+		tradeDao.addTrade(tradeT32);
+		tradeDao.addTrade(tradeT31);
+
+		assertEquals(1, tradeDao.getAllTrades().size());
+		assertEquals(tradeT32, tradeDao.getTradeByIdLatestVersion("T3"));
+	}
+
+	@Test
+	public void testGetTradeByIdLatestVersion() {
+		tradeDao.addTrade(tradeT31);
+		tradeDao.addTrade(tradeT32);
+
+		assertEquals(tradeT32, tradeDao.getTradeByIdLatestVersion("T3"));
+		assertNull(tradeDao.getTradeByIdLatestVersion("T9"));
+	}
+
+	@Test
+	//Batch insert with commit group size smaller than number of trades
+	public void testAddTrades() {
+		int written = tradeDao.addTrades(Arrays.asList(tradeT31, tradeT32, tradeT11, tradeT22, tradeT22_updated));
+
+		assertEquals(5, written);
+		assertEquals(4, tradeDao.getAllTrades().size());
+		assertEquals(tradeT22_updated, tradeDao.getTradeByIdLatestVersion("T2"));
+	}
+
+	@Test
+	//Expiry is a single UPDATE, only trades not expired yet are counted
+	public void testExpireTradesMaturingBefore() {
+		tradeDao.addTrades(Arrays.asList(tradeT31, tradeT32, tradeT11, tradeT22));
+
+		assertEquals(1, tradeDao.findTradesLessThanMaturityDate(23000L).size());
+		assertEquals(2, tradeDao.expireTradesMaturingBefore(25000L));
+		assertEquals(0, tradeDao.expireTradesMaturingBefore(25000L));
+		assertTrue(tradeDao.getTradeByIdLatestVersion("T1").isExpired());
+		assertTrue(tradeDao.getTradeByIdLatestVersion("T3").isExpired());
+		assertEquals(false, tradeDao.getAllTrades().stream()
+				.filter(trade -> trade.getTradeVersion() == 1 && trade.getTradeId().equals("T3"))
+				.findFirst().get().isExpired());
+	}
+
+	@Test
+	//Ids of expired trades are returned when asked
+	public void testExpireTradesMaturingBeforeWithIds() {
+		tradeDao.addTrades(Arrays.asList(tradeT31, tradeT32, tradeT11, tradeT22));
+
+		List<String> expiredTradeIds = new ArrayList<>();
+		assertEquals(2, tradeDao.expireTradesMaturingBefore(25000L, expiredTradeIds));
+		expiredTradeIds.sort(null);
+		assertEquals(Arrays.asList("T1", "T3"), expiredTradeIds);
+	}
+
+	@Test
+	//Expiry limited to max trades, earliest maturity first
+	public void testExpireTradesMaturingBeforeLimited() {
+		tradeDao.addTrades(Arrays.asList(tradeT31, tradeT32, tradeT11));
+
+		assertEquals(1, tradeDao.expireTradesMaturingBefore(30000L, 1, null));
+		assertTrue(tradeDao.getTradeByIdLatestVersion("T3").isExpired());
+		List<String> expiredTradeIds = new ArrayList<>();
+		assertEquals(1, tradeDao.expireTradesMaturingBefore(30000L, 1, expiredTradeIds));
+		assertEquals(Arrays.asList("T1"), expiredTradeIds);
+	}
+
+	@Test
+	//Maturity profile counts trades not expired yet per bucket
+	public void testGetMaturityProfile() {
+		tradeDao.addTrades(Arrays.asList(tradeT31, tradeT32, tradeT11, tradeT22));
+
+		assertArrayEquals(new int[] {1, 0, 1, 1}, tradeDao.getMaturityProfile(10000L, 5000L, 4));
+	}
+
+	@Test
+	//Compare and set of the latest version under the lock row of the tradeId
+	public void testUpsertVersioned() {
+		assertFalse(tradeDao.upsertVersioned(tradeT31, 0));
+		assertTrue(tradeDao.upsertVersioned(tradeT31, TradeDao.NO_VERSION));
+		assertTrue(tradeDao.upsertVersioned(tradeT32, 1));
+		assertFalse(tradeDao.upsertVersioned(tradeT31, 2));	//Lower version
+		assertFalse(tradeDao.upsertVersioned(tradeT32, 1));	//Stale expected version
+
+		Trade tradeT32_updated = Trade.createTrade("T3", 2, "CP-9", "B40", 2500L, 10000L, false);
+		assertTrue(tradeDao.upsertVersioned(tradeT32_updated, 2));
+		assertEquals(2, tradeDao.getAllTrades().size());
+		assertEquals(tradeT32_updated, tradeDao.getTradeByIdLatestVersion("T3"));
+	}
+
+	@Test
+	//Threads race different new versions of one tradeId against the same expected version, exactly one wins every round
+	public void testConcurrentUpsertVersioned() throws Exception {
+		int threads = 8;
+		int rounds = 20;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		int expectedLatestVersion = TradeDao.NO_VERSION;
+		for (int round = 0; round < rounds; round++) {
+			int expected = expectedLatestVersion;
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				Trade trade = Trade.createTrade("T1", round * threads + t + 1, "CP-" + t, "B1", 1000L, 25000L, false);
+				results.add(executor.submit(() -> {
+					start.await();
+					return tradeDao.upsertVersioned(trade, expected);
+				}));
+			}
+			start.countDown();
+			int winners = 0;
+			int winningVersion = 0;
+			for (int t = 0; t < threads; t++) {
+				if (results.get(t).get()) {
+					winners++;
+					winningVersion = round * threads + t + 1;
+				}
+			}
+			assertEquals(1, winners, "Round " + round);
+			assertEquals(winningVersion, tradeDao.getTradeByIdLatestVersion("T1").getTradeVersion());
+			expectedLatestVersion = winningVersion;
+		}
+		executor.shutdown();
+		assertEquals(rounds, tradeDao.getAllTrades().size());
+	}
+
+	@Test
+	//As-of queries are answered from indexes on CREATED_TS
+	public void testAsOfIndexes() throws SQLException {
+		List<String> indexColumns = new ArrayList<>();
+		try (Connection connection = dataSource.getConnection();
+				ResultSet resultSet = connection.createStatement().executeQuery("SELECT INDEX_NAME, COLUMN_NAME FROM INFORMATION_SCHEMA.INDEX_COLUMNS "
+						+ "WHERE TABLE_NAME = 'TRADE' AND INDEX_NAME IN ('TRADE_CREATED_IDX', 'TRADE_ID_CREATED_IDX') "
+						+ "ORDER BY INDEX_NAME, ORDINAL_POSITION")) {
+			while (resultSet.next()) {
+				indexColumns.add(resultSet.getString(1) + "." + resultSet.getString(2));
+			}
+		}
+		assertEquals(Arrays.asList("TRADE_CREATED_IDX.CREATED_TS", "TRADE_ID_CREATED_IDX.TRADE_ID", "TRADE_ID_CREATED_IDX.CREATED_TS"), indexColumns);
+	}
+
+	@Test
+	//As-of lookups use the highest version created at or before the time
+	public void testGetTradeAsOf() {
+		tradeDao.addTrades(Arrays.asList(tradeT31, tradeT32, tradeT11));
+
+		assertNull(tradeDao.getTradeAsOf("T3", 999L));
+		assertEquals(tradeT31, tradeDao.getTradeAsOf("T3", 1999L));
+		assertEquals(tradeT32, tradeDao.getTradeAsOf("T3", 2000L));
+		assertEquals(Arrays.asList(tradeT31), new ArrayList<>(tradeDao.getBookAsOf(1500L)));
+		assertEquals(Arrays.asList(tradeT11, tradeT32), new ArrayList<>(tradeDao.getBookAsOf(3000L)));
+	}
+
+	@Test
+	//Prefix scan escapes LIKE wildcards, range scan is [from, to)
+	public void testFindTradesByIdPrefixAndRange() {
+		Trade tradeT_1 = Trade.createTrade("T_1", 1, "CP-1", "B1", 1000L, 25000L, false);
+		tradeDao.addTrades(Arrays.asList(tradeT31, tradeT32, tradeT11, tradeT22, tradeT_1));
+
+		assertEquals(Arrays.asList(tradeT32, tradeT31), new ArrayList<>(tradeDao.findTradesByIdPrefix("T3")));
+		assertEquals(Arrays.asList(tradeT_1), new ArrayList<>(tradeDao.findTradesByIdPrefix("T_")));
+		assertEquals(Arrays.asList(tradeT11, tradeT22), new ArrayList<>(tradeDao.findTradesByIdRange("T1", "T3")));
+		assertEquals(Arrays.asList(tradeT32, tradeT31, tradeT_1), new ArrayList<>(tradeDao.findTradesByIdRange("T3", null)));
+	}
+
+	@Test
+	//Lookups of tradeIds never stored are answered by the tradeId filter
+	public void testTradeIdFilter() {
+		tradeDao.addTrade(tradeT31);
+
+		assertEquals(tradeT31, tradeDao.getTradeByIdLatestVersion("T3"));
+		assertNull(tradeDao.getTradeByIdLatestVersion("T1"));
+		assertNull(tradeDao.getTradeAsOf("T2", 5000L));
+		assertEquals(3, tradeDao.getFilterCheckCount());
+		assertEquals(2 - tradeDao.getFilterFalsePositiveCount(), tradeDao.getFilterNegativeCount());
+	}
+
+	@Test
+	//As-of lookup which passed the filter is a false positive only when the tradeId has no rows
+	public void testTradeIdFilterAsOfFalsePositive() {
+		tradeDao.addTrade(tradeT31);
+		tradeDao.updateTrade(tradeT31, tradeT11);	//T3 stays in the filter without rows
+
+		assertNull(tradeDao.getTradeAsOf("T1", 0L));	//Created later
+		assertEquals(0, tradeDao.getFilterFalsePositiveCount());
+		assertEquals(tradeT11, tradeDao.getTradeAsOf("T1", 3000L));
+		assertNull(tradeDao.getTradeAsOf("T3", 5000L));
+		assertEquals(1, tradeDao.getFilterFalsePositiveCount());
+		assertEquals(3, tradeDao.getFilterCheckCount());
+	}
+
+	@Test
+	//Rows written by another DAO are found after the filter is rebuilt
+	public void testRebuildTradeIdFilter() {
+		JdbcDataSource dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:jdbcTradeDaoTest" + (databaseCount - 1) + ";DB_CLOSE_DELAY=-1");
+		new JdbcTradeDao(dataSource).addTrade(tradeT11);
+		tradeDao.getTradeByIdLatestVersion("T1");
+
+		tradeDao.rebuildTradeIdFilter();
+		assertEquals(tradeT11, tradeDao.getTradeByIdLatestVersion("T1"));
+	}
+}
@@ -0,0 +1,113 @@
+/**
+* Fake slow backing store for tests and benchmarks
+* Wraps InMemoryTradeDao and adds fixed latency to every call to simulate a remote database round trip
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+package org.pmk.demo.trade.dao;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.pmk.demo.trade.model.Trade;
+
+public class LatencyTradeDao implements TradeDao {
+	private final TradeDao delegate = new InMemoryTradeDao();
+	private final long latencyNanos;
+	private final AtomicInteger lookupCount = new AtomicInteger();
+
+	public LatencyTradeDao(long latencyMicros) {
+		this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+	}
+
+	@Override
+	public void addTrade(Trade theTrade) {
+		roundTrip();
+		delegate.addTrade(theTrade);
+	}
+
+	@Override
+	public void updateTrade(Trade oldTrade, Trade newTrade) {
+		roundTrip();
+		delegate.updateTrade(oldTrade, newTrade);
+	}
+
+	@Override
+	public Collection<Trade> getAllTrades() {
+		roundTrip();
+		return delegate.getAllTrades();
+	}
+
+	@Override
+	public Trade getTradeByIdLatestVersion(String tradeId) {
+		lookupCount.incrementAndGet();
+		roundTrip();
+		return delegate.getTradeByIdLatestVersion(tradeId);
+	}
+
+	@Override
+	public Collection<Trade> findTradesLessThanMaturityDate(long maturityDateTs) {
+		roundTrip();
+		return delegate.findTradesLessThanMaturityDate(maturityDateTs);
+	}
+
+	@Override
+	public boolean upsertVersioned(Trade theTrade, int expectedLatestVersion) {
+		roundTrip();
+		return delegate.upsertVersioned(theTrade, expectedLatestVersion);
+	}
+
+	@Override
+	public int expireTradesMaturingBefore(long maturityDateTs, int maxTrades, Collection<String> expiredTradeIds) {
+		roundTrip();
+		return delegate.expireTradesMaturingBefore(maturityDateTs, maxTrades, expiredTradeIds);
+	}
+
+	@Override
+	public int[] getMaturityProfile(long fromTs, long bucketMillis, int bucketCount) {
+		roundTrip();
+		return delegate.getMaturityProfile(fromTs, bucketMillis, bucketCount);
+	}
+
+	@Override
+	public Collection<Trade> findTradesByIdPrefix(String tradeIdPrefix) {
+		roundTrip();
+		return delegate.findTradesByIdPrefix(tradeIdPrefix);
+	}
+
+	@Override
+	public Collection<Trade> findTradesByIdRange(String fromTradeId, String toTradeId) {
+		roundTrip();
+		return delegate.findTradesByIdRange(fromTradeId, toTradeId);
+	}
+
+	@Override
+	public Trade getTradeAsOf(String tradeId, long asOfTs) {
+		roundTrip();
+		return delegate.getTradeAsOf(tradeId, asOfTs);
+	}
+
+	@Override
+	public void forEachTradeAsOf(long asOfTs, Consumer<? super Trade> action) {
+		roundTrip();
+		delegate.forEachTradeAsOf(asOfTs, action);
+	}
+
+	//Number of getTradeByIdLatestVersion calls which reached this store
+	public int getLookupCount() {
+		return lookupCount.get();
+	}
+
+	private void roundTrip() {
+		if (latencyNanos > 0) {
+			try {
+				TimeUnit.NANOSECONDS.sleep(latencyNanos);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -0,0 +1,59 @@
+/**
+* Unit Test for ScalableBloomFilter
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+
+package org.pmk.demo.trade.dao;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class ScalableBloomFilterTest {
+
+	@Test
+	//No false negatives, also after the filter has grown
+	public void testPutAndMightContain() {
+		ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01);
+		assertFalse(filter.mightContain("T1"));
+		assertTrue(filter.put("T1"));
+		assertFalse(filter.put("T1"));
+		assertTrue(filter.mightContain("T1"));
+
+		for (int i = 0; i < 10000; i++) {
+			filter.put("T" + i);
+		}
+		assertTrue(filter.getStageCount() > 1);
+		for (int i = 0; i < 10000; i++) {
+			assertTrue(filter.mightContain("T" + i));
+		}
+	}
+
+	@Test
+	//False positive rate stays within twice the rate of the first stage while the filter grows
+	public void testFalsePositiveRate() {
+		ScalableBloomFilter filter = new ScalableBloomFilter(1000, 0.01);
+		for (int i = 0; i < 50000; i++) {
+			filter.put("T" + i);
+		}
+		int falsePositives = 0;
+		int checks = 100000;
+		for (int i = 0; i < checks; i++) {
+			if (filter.mightContain("N" + i)) {
+				falsePositives++;
+			}
+		}
+		assertTrue((double) falsePositives / checks < 0.02, "false positives " + falsePositives);
+		assertTrue(filter.getExpectedFalsePositiveProbability() < 0.02);
+	}
+
+	@Test
+	public void testInvalidArguments() {
+		assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter(0, 0.01));
+		assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter(100, 1));
+	}
+}
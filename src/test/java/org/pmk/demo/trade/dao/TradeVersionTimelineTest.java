@@ -0,0 +1,235 @@
+/**
+* Unit Test for TradeVersionTimeline
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+
+package org.pmk.demo.trade.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.pmk.demo.trade.model.Trade;
+
+public class TradeVersionTimelineTest {
+
+	private static Trade version(int tradeVersion, long createdTs) {
+		return Trade.createTrade("T1", tradeVersion, "CP-1", "B1", createdTs, createdTs + 100000, false);
+	}
+
+	@Test
+	//Versions are kept sorted whatever the insert order
+	public void testPutAndLatest() {
+		TradeVersionTimeline timeline = new TradeVersionTimeline("T1");
+		Trade v1 = version(1, 1000);
+		Trade v2 = version(2, 2000);
+		Trade v3 = version(3, 3000);
+		timeline.put(v3);
+		timeline.put(v1);
+		timeline.put(v2);
+
+		assertEquals(3, timeline.size());
+		assertEquals(v1, timeline.get(0));
+		assertEquals(v3, timeline.latest());
+		assertEquals(v2, timeline.getVersion(2));
+		assertNull(timeline.getVersion(4));
+	}
+
+	@Test
+	//As-of is the highest version created at or before the time
+	public void testAsOf() {
+		TradeVersionTimeline timeline = new TradeVersionTimeline("T1");
+		Trade v1 = version(1, 1000);
+		Trade v2 = version(2, 2000);
+		timeline.put(v1);
+		timeline.put(v2);
+
+		assertNull(timeline.asOf(999));
+		assertEquals(v1, timeline.asOf(1999));
+		assertEquals(v2, timeline.asOf(2000));
+	}
+
+	@Test
+	//Version 3 created before version 2 hides version 2 as soon as it exists
+	public void testAsOfCreatedNotInVersionOrder() {
+		TradeVersionTimeline timeline = new TradeVersionTimeline("T1");
+		Trade v1 = version(1, 1000);
+		Trade v2 = version(2, 3000);
+		Trade v3 = version(3, 2000);
+		timeline.put(v1);
+		timeline.put(v2);
+		timeline.put(v3);
+
+		assertEquals(v1, timeline.asOf(1999));
+		assertEquals(v3, timeline.asOf(2000));
+		assertEquals(v3, timeline.asOf(5000));
+	}
+
+	@Test
+	//Replace and remove keep as-of lookups correct
+	public void testReplaceAndRemove() {
+		TradeVersionTimeline timeline = new TradeVersionTimeline("T1");
+		Trade v1 = version(1, 1000);
+		Trade v2 = version(2, 2000);
+		Trade v2Updated = version(2, 500);
+		timeline.put(v1);
+		timeline.put(v2);
+
+		assertEquals(v2, timeline.put(v2Updated));
+		assertEquals(2, timeline.size());
+		assertEquals(v2Updated, timeline.asOf(500));
+
+		assertEquals(v2Updated, timeline.remove(2));
+		assertNull(timeline.remove(2));
+		assertNull(timeline.asOf(500));
+	}
+
+	@Test
+	//Older versions are rebuilt from the deltas with all their fields, latest version is the stored object
+	public void testOlderVersionsRebuilt() {
+		TradeVersionTimeline timeline = new TradeVersionTimeline("T1");
+		Trade v1 = Trade.createTrade("T1", 1, "CP-1", "B1", 5000, 900000, true);
+		Trade v2 = Trade.createTrade("T1", 2, null, "B1", 1000, 900000, false);
+		Trade v5 = Trade.createTrade("T1", 5, "CP-\u00e9", null, 3000, 800000, false);
+		Trade v6 = Trade.createTrade("T1", 6, "CP-\u00e9", "B2", 3000, 950000, false);
+		timeline.put(v1);
+		timeline.put(v2);
+		timeline.put(v5);
+		timeline.put(v6);
+
+		assertSame(v6, timeline.latest());
+		assertSame(v6, timeline.getVersion(6));
+		assertTrue(timeline.getDeltaSize() > 0);
+		assertEquals(v1, timeline.getVersion(1));
+		assertEquals(v2, timeline.getVersion(2));
+		assertNull(timeline.getVersion(3));
+		assertEquals(v5, timeline.getVersion(5));
+
+		List<Trade> versions = new ArrayList<>();
+		timeline.addAllVersions(versions);
+		assertEquals(4, versions.size());
+		assertSame(v6, versions.get(0));
+		assertEquals(v5, versions.get(1));
+		assertEquals(v2, versions.get(2));
+		assertEquals(v1, versions.get(3));
+	}
+
+	@Test
+	//Version inserted between existing versions rebuilds the deltas
+	public void testPutBetweenVersions() {
+		TradeVersionTimeline timeline = new TradeVersionTimeline("T1");
+		Trade v1 = Trade.createTrade("T1", 1, "CP-1", "B1", 1000, 900000, false);
+		Trade v2 = Trade.createTrade("T1", 2, "CP-2", "B2", 2000, 700000, false);
+		Trade v3 = Trade.createTrade("T1", 3, "CP-3", "B3", 3000, 800000, false);
+		timeline.put(v1);
+		timeline.put(v3);
+		timeline.put(v2);
+
+		assertEquals(3, timeline.size());
+		assertEquals(v1, timeline.get(0));
+		assertEquals(v2, timeline.get(1));
+		assertSame(v3, timeline.get(2));
+		assertEquals(700000, timeline.minUnexpiredMaturity());
+	}
+
+	@Test
+	//Older versions are expired in place, lowest maturity not expired moves up
+	public void testExpireMaturingBefore() {
+		TradeVersionTimeline timeline = new TradeVersionTimeline("T1");
+		timeline.put(Trade.createTrade("T1", 1, "CP-1", "B1", 1000, 1000, false));
+		timeline.put(Trade.createTrade("T1", 2, "CP-1", "B1", 1000, 2000, false));
+		timeline.put(Trade.createTrade("T1", 3, "CP-1", "B1", 1000, 3000, false));
+		assertEquals(1000, timeline.minUnexpiredMaturity());
+
+		List<String> expiredTradeIds = new ArrayList<>();
+		assertEquals(1, timeline.expireMaturingBefore(2500, 1, expiredTradeIds));
+		assertEquals(1, expiredTradeIds.size());
+		assertTrue(timeline.getVersion(2).isExpired());
+		assertEquals(1000, timeline.minUnexpiredMaturity());
+
+		assertEquals(1, timeline.expireMaturingBefore(2500, 10, expiredTradeIds));
+		assertTrue(timeline.getVersion(1).isExpired());
+		assertEquals(3000, timeline.minUnexpiredMaturity());
+
+		assertEquals(1, timeline.expireMaturingBefore(4000, 10, null));
+		assertTrue(timeline.latest().isExpired());
+		assertEquals(TradeVersionTimeline.NO_MATURITY, timeline.minUnexpiredMaturity());
+	}
+
+	@Test
+	//Older versions are decoded from a copy, changing the latest Trade or a returned older version does not change them
+	public void testOlderVersionsNotChangedByCaller() {
+		TradeVersionTimeline timeline = new TradeVersionTimeline("T1");
+		Trade v2 = Trade.createTrade("T1", 2, "CP-1", "B1", 2000, 900000, false);
+		timeline.put(Trade.createTrade("T1", 1, "CP-1", "B1", 1000, 900000, false));
+		timeline.put(v2);
+		v2.setCounterPartyId("CP-2");
+		v2.setBookId(null);
+		v2.setCreatedDateTimeStamp(500);
+		v2.setMaturityDateTimeStamp(800000);
+
+		Trade v1 = Trade.createTrade("T1", 1, "CP-1", "B1", 1000, 900000, false);
+		assertSame(v2, timeline.latest());
+		assertEquals(v1, timeline.getVersion(1));
+		timeline.getVersion(1).setExpired(true);
+		assertFalse(timeline.getVersion(1).isExpired());
+
+		//Amendment keeps the changed previous latest version and the versions below it
+		timeline.put(Trade.createTrade("T1", 3, "CP-3", "B1", 3000, 900000, false));
+		assertEquals(v1, timeline.getVersion(1));
+		assertEquals(Trade.createTrade("T1", 2, "CP-2", null, 500, 800000, false), timeline.getVersion(2));
+	}
+
+	@Test
+	//Lookups from the checkpoints of many versions match a walk over all versions, amendments and out of order puts
+	public void testCheckpointedLookups() {
+		Random random = new Random(11);
+		TradeVersionTimeline timeline = new TradeVersionTimeline("T1");
+		List<Trade> versions = new ArrayList<>();
+		for (int v = 1; v <= 60; v++) {
+			if (v % 7 == 0) {
+				continue;
+			}
+			Trade trade = Trade.createTrade("T1", v, "CP-" + random.nextInt(3), random.nextInt(4) == 0 ? null : "B" + random.nextInt(3),
+					random.nextInt(100000), 900000 + random.nextInt(1000), false);
+			versions.add(trade);
+			timeline.put(trade);
+			assertLookups(timeline, versions);
+		}
+		Trade between = Trade.createTrade("T1", 14, "CP-9", "B9", 50, 900000, false);
+		versions.add(12, between);
+		timeline.put(between);
+		assertLookups(timeline, versions);
+		assertEquals(versions.remove(3), timeline.remove(4));
+		assertLookups(timeline, versions);
+	}
+
+	//Expected results are found by a walk over the versions in ascending order
+	private static void assertLookups(TradeVersionTimeline timeline, List<Trade> versions) {
+		assertEquals(versions.size(), timeline.size());
+		for (int i = 0; i < versions.size(); i++) {
+			Trade expected = versions.get(i);
+			assertEquals(expected, timeline.get(i));
+			assertEquals(expected, timeline.getVersion(expected.getTradeVersion()));
+			assertNull(timeline.getVersion(expected.getTradeVersion() * 1000));
+		}
+		for (long asOfTs = -1; asOfTs <= 100000; asOfTs += 997) {
+			Trade expected = null;
+			for (Trade version : versions) {
+				if (version.getCreatedDateTimeStamp() <= asOfTs) {
+					expected = version;
+				}
+			}
+			assertEquals(expected, timeline.asOf(asOfTs));
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/**
+* Unit Test for TradeReplay harness and SimulatedClock
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+
+package org.pmk.demo.trade.replay;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.Clock;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.pmk.demo.trade.dao.InMemoryTradeDao;
+import org.pmk.demo.trade.model.Trade;
+
+public class TradeReplayTest {
+	private static final long DAY_START = 1672531200000L;	//2023-01-01 00:00 UTC
+	private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+	//One simulated day - T1 matures at noon, T2 amended twice, T3 rejected for lower version, T4 rejected for past maturity
+	private static final String TRADE_LOG = "# createdTs,tradeId,tradeVersion,counterPartyId,bookId,maturityTs\n"
+			+ (DAY_START + HOUR) + ",T1,1,CP-1,B1," + (DAY_START + 12 * HOUR) + "\n"
+			+ (DAY_START + 2 * HOUR) + ",T2,1,CP-2,B1," + (DAY_START + 48 * HOUR) + "\n"
+			+ (DAY_START + 3 * HOUR) + ",T3,2,CP-1,B2," + (DAY_START + 48 * HOUR) + "\n"
+			+ (DAY_START + 4 * HOUR) + ",T2,2,CP-2,B3," + (DAY_START + 48 * HOUR) + "\n"
+			+ (DAY_START + 5 * HOUR) + ",T3,1,CP-1,B2," + (DAY_START + 48 * HOUR) + "\n"
+			+ "\n"
+			+ (DAY_START + 13 * HOUR) + ",T4,1,CP-3,B1," + (DAY_START + 12 * HOUR) + "\n"
+			+ (DAY_START + 23 * HOUR) + ",T2,2,CP-4,B3," + (DAY_START + 48 * HOUR) + "\n";
+
+	@Test
+	//Day of trades is replayed using simulated time, expiry is driven by simulated time as well
+	public void testReplay() throws IOException {
+		TradeReplay replay = new TradeReplay(new InMemoryTradeDao(), TradeReplay.AS_FAST_AS_POSSIBLE);
+		ReplayReport report = replay.replay(new StringReader(TRADE_LOG));
+
+		assertEquals(7, report.getEventCount());
+		assertEquals(5, report.getAcceptedCount());
+		assertEquals(2, report.getRejectedCount());
+		assertEquals(1, report.getExpiredCount());
+		assertEquals(22 * HOUR, report.getSimulatedMillis());
+		assertEquals(4, report.getTradeCount());
+		assertEquals(DAY_START + 23 * HOUR, replay.getClock().millis());
+		for (Trade trade : replay.getTradeService().getTrades()) {
+			assertEquals(trade.getTradeId().equals("T1"), trade.isExpired());
+		}
+		assertTrue(report.getLatencyPercentileNanos(50) <= report.getLatencyPercentileNanos(99));
+	}
+
+	@Test
+	//Same log gives the same end state regardless of speed
+	public void testChecksumIsDeterministic() throws IOException {
+		ReplayReport fastReport = new TradeReplay(new InMemoryTradeDao(), TradeReplay.AS_FAST_AS_POSSIBLE)
+				.replay(new StringReader(TRADE_LOG));
+		//22 simulated hours in about 80 ms
+		ReplayReport pacedReport = new TradeReplay(new InMemoryTradeDao(), 1_000_000)
+				.replay(new StringReader(TRADE_LOG));
+
+		assertEquals(fastReport.getChecksum(), pacedReport.getChecksum());
+		assertTrue(pacedReport.getWallNanos() >= TimeUnit.MILLISECONDS.toNanos(22 * HOUR) / 1_000_000);
+	}
+
+	@Test
+	public void testInvalidRecord() {
+		TradeReplay replay = new TradeReplay(new InMemoryTradeDao(), TradeReplay.AS_FAST_AS_POSSIBLE);
+		assertThrows(IllegalArgumentException.class, () -> replay.replay(new StringReader("1,T1,one,CP-1,B1,2\n")));
+	}
+
+	@Test
+	//Zoned copy has the requested zone and moves together with the original clock
+	public void testSimulatedClockWithZone() {
+		SimulatedClock clock = new SimulatedClock(DAY_START);
+		ZoneId zone = ZoneId.of("Asia/Kolkata");
+		Clock zonedClock = clock.withZone(zone);
+
+		assertEquals(ZoneOffset.UTC, clock.getZone());
+		assertEquals(zone, zonedClock.getZone());
+		clock.setMillis(DAY_START + HOUR);
+		assertEquals(DAY_START + HOUR, zonedClock.millis());
+	}
+
+	@Test
+	public void testRecordRoundTrip() {
+		Trade trade = Trade.createTrade("T1", 2, "CP-1", "B1", DAY_START, DAY_START + HOUR, false);
+		assertEquals(trade, TradeReplay.parseRecord(TradeReplay.toRecord(trade), 1));
+	}
+
+	@Test
+	//Simulated clock only moves forward
+	public void testSimulatedClock() {
+		SimulatedClock clock = new SimulatedClock(DAY_START);
+		clock.setMillis(DAY_START + HOUR);
+		assertEquals(DAY_START + HOUR, clock.instant().toEpochMilli());
+		assertThrows(IllegalArgumentException.class, () -> clock.setMillis(DAY_START));
+		assertFalse(clock.millis() == DAY_START);
+	}
+}
@@ -0,0 +1,220 @@
+/**
+* Allocation budget regression test of the ingest path
+* Bytes allocated per operation are measured with the allocated bytes counter of the thread (ThreadMXBean) after a warm up,
+* the test fails when the median of the measured rounds is over the budget in allocation-budgets.properties
+* by more than a fixed tolerance of TOLERANCE_BYTES.
+* Budgets relying on escape analysis are recorded per JVM (operation.java<specification version>) and used only on a HotSpot
+* server VM with escape analysis on. Anywhere else the portable budget (operation) is used.
+* The JaCoCo agent of the build is allowed, its probe arrays are allocated once per class and not on the measured paths.
+* Budgets are recorded from a run with some headroom, lower them when an operation allocates less.
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+
+package org.pmk.demo.trade.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.pmk.demo.trade.dao.InMemoryTradeDao;
+import org.pmk.demo.trade.exception.ValidationException;
+import org.pmk.demo.trade.model.Trade;
+import org.pmk.demo.trade.replay.SimulatedClock;
+import org.pmk.demo.trade.validations.TradeMaturityDateValidator;
+import org.pmk.demo.trade.validations.TradeVersionValidator;
+
+public class AllocationBudgetTest {
+	//2026-10-19T00:00:00Z
+	private static final long NOW = 1792368000000L;
+	private static final long DAY = TimeUnit.DAYS.toMillis(1);
+	private static final String BUDGETS = "/allocation-budgets.properties";
+	//Enough runs for the JIT to compile (and escape analyse) the measured path
+	private static final int WARM_UP_ROUNDS = 5;
+	//Rounds measured after the warm up, median is compared with the budget
+	private static final int MEASURED_ROUNDS = 5;
+	//Counter noise allowed per operation, less than the smallest allocation (16 bytes)
+	private static final long TOLERANCE_BYTES = 8;
+	private static final int OPERATIONS = 20_000;
+
+	private static com.sun.management.ThreadMXBean threadMXBean;
+	private static Properties budgets;
+	private static boolean jvmBudgets;
+
+	@FunctionalInterface
+	private interface Operation {
+		void run(int i) throws ValidationException;
+	}
+
+	//One round of an operation, returns bytes allocated per operation
+	@FunctionalInterface
+	private interface Round {
+		long measure() throws ValidationException;
+	}
+
+	@BeforeAll
+	public static void setUpClass() throws IOException {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean, "Allocated bytes counter is not available on this JVM");
+		threadMXBean = (com.sun.management.ThreadMXBean) bean;
+		assumeTrue(threadMXBean.isThreadAllocatedMemorySupported(), "Allocated bytes counter is not supported on this JVM");
+		threadMXBean.setThreadAllocatedMemoryEnabled(true);
+		budgets = new Properties();
+		try (InputStream in = AllocationBudgetTest.class.getResourceAsStream(BUDGETS)) {
+			assertNotNull(in, BUDGETS + " not found");
+			budgets.load(in);
+		}
+		jvmBudgets = isEscapeAnalysisReliable();
+	}
+
+	@Test
+	//New tradeId - validation, version check and write, the stored trade itself is allocated by the caller
+	public void testAddNewTrade() throws ValidationException {
+		assertWithinBudget("addNewTrade", measureRounds(() -> {
+			TradeService tradeService = newTradeService(new SimulatedClock(NOW));
+			List<Trade> trades = newTrades(OPERATIONS, 1);
+			return measure(i -> tradeService.addNewTrade(trades.get(i)));
+		}));
+	}
+
+	@Test
+	//Latest version of an existing tradeId
+	public void testLatestVersionLookup() throws ValidationException {
+		TradeService tradeService = newTradeService(new SimulatedClock(NOW));
+		List<Trade> trades = newTrades(OPERATIONS, 1);
+		for (Trade trade : trades) {
+			tradeService.addNewTrade(trade);
+		}
+		String[] tradeIds = new String[OPERATIONS];
+		for (int i = 0; i < OPERATIONS; i++) {
+			tradeIds[i] = trades.get(i).getTradeId();
+		}
+		assertWithinBudget("getTradeByIdLatestVersion", measureRounds(() -> measure(i -> tradeService.getTradeByIdLatestVersion(tradeIds[i]))));
+	}
+
+	@Test
+	//Trade with a lower version than the stored one is rejected by the version validator
+	public void testValidationRejection() throws ValidationException {
+		TradeService tradeService = newTradeService(new SimulatedClock(NOW));
+		for (Trade trade : newTrades(OPERATIONS, 2)) {
+			tradeService.addNewTrade(trade);
+		}
+		List<Trade> lowerVersions = newTrades(OPERATIONS, 1);
+		int[] rejectedCount = new int[1];
+		long[] bytesPerOperation = measureRounds(() -> {
+			rejectedCount[0] = 0;
+			return measure(i -> {
+				try {
+					tradeService.addNewTrade(lowerVersions.get(i));
+				} catch (ValidationException e) {
+					rejectedCount[0]++;
+				}
+			});
+		});
+		assertEquals(OPERATIONS, rejectedCount[0]);
+		assertWithinBudget("validationRejection", bytesPerOperation);
+	}
+
+	@Test
+	//Expiry sweep in chunks, per expired trade
+	public void testExpirySweep() throws ValidationException {
+		int chunkSize = TradeExpiryScheduler.DEFAULT_CHUNK_SIZE;
+		assertWithinBudget("expirySweep", measureRounds(() -> {
+			SimulatedClock clock = new SimulatedClock(NOW);
+			TradeService tradeService = newTradeService(clock);
+			for (Trade trade : newTrades(OPERATIONS, 1)) {
+				tradeService.addNewTrade(trade);
+			}
+			clock.setMillis(NOW + 2 * DAY);
+			int[] expiredCount = new int[1];
+			long bytesPerOperation = measure(OPERATIONS / chunkSize,
+					i -> expiredCount[0] += tradeService.updateTradeExpiry(NOW + 2 * DAY, chunkSize)) / chunkSize;
+			assertEquals(OPERATIONS, expiredCount[0]);
+			return bytesPerOperation;
+		}));
+	}
+
+	private static TradeService newTradeService(SimulatedClock clock) {
+		return new TradeService(new InMemoryTradeDao(), new TradeMaturityDateValidator(new TradeVersionValidator(null), clock), clock);
+	}
+
+	private static List<Trade> newTrades(int count, int tradeVersion) {
+		List<Trade> trades = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			trades.add(Trade.createTrade("T" + i, tradeVersion, "CP-1", "B1", NOW, NOW + DAY + i, false));
+		}
+		return trades;
+	}
+
+	//Warm up rounds are run and dropped, bytes per operation of the measured rounds are returned
+	private static long[] measureRounds(Round round) throws ValidationException {
+		long[] bytesPerOperation = new long[MEASURED_ROUNDS];
+		for (int i = 0; i < WARM_UP_ROUNDS + MEASURED_ROUNDS; i++) {
+			long bytes = round.measure();
+			if (i >= WARM_UP_ROUNDS) {
+				bytesPerOperation[i - WARM_UP_ROUNDS] = bytes;
+			}
+		}
+		return bytesPerOperation;
+	}
+
+	private static long measure(Operation operation) throws ValidationException {
+		return measure(OPERATIONS, operation);
+	}
+
+	//Bytes allocated per operation by the current thread
+	private static long measure(int operations, Operation operation) throws ValidationException {
+		long threadId = Thread.currentThread().getId();
+		long before = threadMXBean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < operations; i++) {
+			operation.run(i);
+		}
+		return (threadMXBean.getThreadAllocatedBytes(threadId) - before) / operations;
+	}
+
+	//Median of the measured rounds within the budget plus the fixed tolerance
+	private static void assertWithinBudget(String operation, long[] bytesPerOperation) {
+		long budget = budget(operation);
+		long[] sorted = bytesPerOperation.clone();
+		Arrays.sort(sorted);
+		long median = sorted[sorted.length / 2];
+		assertTrue(median <= budget + TOLERANCE_BYTES, operation + " allocates " + median + " bytes per operation (rounds "
+				+ Arrays.toString(bytesPerOperation) + "), budget is " + budget + " + tolerance " + TOLERANCE_BYTES);
+	}
+
+	//Budget recorded for this JVM when escape analysis can be relied on, otherwise the portable one
+	private static long budget(String operation) {
+		String budget = jvmBudgets ? budgets.getProperty(operation + ".java" + System.getProperty("java.specification.version")) : null;
+		if (budget == null) {
+			budget = budgets.getProperty(operation);
+		}
+		assertNotNull(budget, "No allocation budget for " + operation);
+		return Long.parseLong(budget.trim());
+	}
+
+	//HotSpot server compiler with escape analysis on
+	private static boolean isEscapeAnalysisReliable() {
+		if (!String.valueOf(System.getProperty("java.vm.name")).contains("Server VM")) {
+			return false;
+		}
+		for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+			if (argument.equals("-XX:-DoEscapeAnalysis") || argument.equals("-Xint") || argument.startsWith("-XX:TieredStopAtLevel")) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,225 @@
+/**
+* Unit Test for PartitionedTradeService
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+
+package org.pmk.demo.trade.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pmk.demo.trade.dao.TradeDao;
+import org.pmk.demo.trade.exception.ValidationException;
+import org.pmk.demo.trade.model.Trade;
+import org.pmk.demo.trade.replay.SimulatedClock;
+import org.pmk.demo.trade.validations.TradeMaturityDateValidator;
+import org.pmk.demo.trade.validations.TradeValidator;
+import org.pmk.demo.trade.validations.TradeVersionValidator;
+
+public class PartitionedTradeServiceTest {
+	//2026-10-19T00:00:00Z
+	private static final long NOW = 1792368000000L;
+	private static final long DAY = TimeUnit.DAYS.toMillis(1);
+	private static final String TRADE_VERSION_LOWER = "Trade with higher version exists";
+
+	private SimulatedClock clock;
+	private PartitionedTradeService tradeService;
+
+	@BeforeEach
+	public void setUp () {
+		clock = new SimulatedClock(NOW);
+		tradeService = new PartitionedTradeService(4,
+				new TradeMaturityDateValidator(new TradeVersionValidator(null), clock), clock);
+	}
+
+	@AfterEach
+	//Reset before next test
+	public void tearDown () {
+		tradeService.shutdown();
+		tradeService = null;
+	}
+
+	@Test
+	//Trades added from many threads, merged book is in the same order as one TradeService
+	public void testConcurrentAddAndMergedTrades() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<?>> futures = new ArrayList<>();
+		List<Trade> expected = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			List<Trade> trades = new ArrayList<>();
+			for (int i = 0; i < 500; i++) {
+				trades.add(Trade.createTrade("T" + t + "-" + i, 1, "CP-1", "B1", NOW, NOW + DAY + i, false));
+				trades.add(Trade.createTrade("T" + t + "-" + i, 2, "CP-1", "B1", NOW, NOW + DAY + i, false));
+			}
+			expected.addAll(trades);
+			futures.add(executor.submit(() -> {
+				for (Trade trade : trades) {
+					tradeService.addNewTrade(trade);
+				}
+				return null;
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		Collections.sort(expected);
+		assertEquals(expected, new ArrayList<>(tradeService.getTrades()));
+		assertEquals(2, tradeService.getTradeByIdLatestVersion("T3-42").getTradeVersion());
+		assertNull(tradeService.getTradeByIdLatestVersion("T9"));
+	}
+
+	@Test
+	//Rejection of the partition worker reaches the caller
+	public void testValidationException() throws ValidationException {
+		tradeService.addNewTrade(Trade.createTrade("T1", 2, "CP-1", "B1", NOW, NOW + DAY, false));
+		ValidationException e = assertThrows(ValidationException.class,
+				() -> tradeService.addNewTrade(Trade.createTrade("T1", 1, "CP-1", "B1", NOW, NOW + DAY, false)));
+		assertEquals(TRADE_VERSION_LOWER, e.getMessage());
+
+		CompletableFuture<Void> future = tradeService.submitTrade(Trade.createTrade("T1", 1, "CP-1", "B1", NOW, NOW + DAY, false));
+		ExecutionException executionException = assertThrows(ExecutionException.class, future::get);
+		assertTrue(executionException.getCause() instanceof ValidationException);
+	}
+
+	@Test
+	//Every partition expires its own trades
+	public void testUpdateTradeExpiry() throws ValidationException {
+		for (int i = 0; i < 100; i++) {
+			tradeService.addNewTrade(Trade.createTrade("T" + i, 1, "CP-1", "B1", NOW, NOW + (i < 40 ? 1 : 2) * DAY, false));
+		}
+		clock.setMillis(NOW + DAY);
+		assertEquals(40, tradeService.updateTradeExpiry());
+		int expiredCount = 0;
+		for (Trade trade : tradeService.getTrades()) {
+			expiredCount += trade.isExpired() ? 1 : 0;
+		}
+		assertEquals(40, expiredCount);
+		assertEquals(0, tradeService.updateTradeExpiry());
+	}
+
+	@Test
+	//Tasks submitted after shutdown are rejected
+	public void testShutdown() throws ValidationException {
+		tradeService.addNewTrade(Trade.createTrade("T1", 1, "CP-1", "B1", NOW, NOW + DAY, false));
+		tradeService.shutdown();
+		assertThrows(IllegalStateException.class,
+				() -> tradeService.addNewTrade(Trade.createTrade("T2", 1, "CP-1", "B1", NOW, NOW + DAY, false)));
+	}
+
+	@Test
+	//Error thrown by a task reaches the caller and the worker of the partition keeps running
+	public void testTaskThrowingError() throws Exception {
+		tradeService.shutdown();
+		tradeService = new PartitionedTradeService(1, new TradeValidator(null) {
+			@Override
+			protected void validateThis(Trade trade, TradeDao dao) {
+				if (trade.getTradeId().equals("BROKEN")) {
+					throw new AssertionError("Broken validator");
+				}
+			}
+		}, clock);
+
+		//Waits are bounded, a dead worker would leave the futures incomplete
+		CompletableFuture<Void> broken = tradeService.submitTrade(Trade.createTrade("BROKEN", 1, "CP-1", "B1", NOW, NOW + DAY, false));
+		ExecutionException executionException = assertThrows(ExecutionException.class, () -> broken.get(10, TimeUnit.SECONDS));
+		assertTrue(executionException.getCause() instanceof AssertionError);
+		tradeService.submitTrade(Trade.createTrade("T1", 1, "CP-1", "B1", NOW, NOW + DAY, false)).get(10, TimeUnit.SECONDS);
+		assertEquals(1, tradeService.getTrades().size());
+	}
+
+	@Test
+	//Every task submitted while the service shuts down is completed, by its worker or rejected
+	public void testSubmitRacingShutdown() throws Exception {
+		int threads = 4;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch started = new CountDownLatch(threads);
+		List<Future<List<CompletableFuture<Void>>>> results = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			int thread = t;
+			results.add(executor.submit(() -> {
+				List<CompletableFuture<Void>> futures = new ArrayList<>();
+				started.countDown();
+				for (int i = 0; i < 20000; i++) {
+					CompletableFuture<Void> future = tradeService.submitTrade(Trade.createTrade("T" + thread + "-" + i, 1, "CP-1", "B1", NOW, NOW + DAY, false));
+					futures.add(future);
+					if (future.isCompletedExceptionally()) {
+						break;
+					}
+				}
+				return futures;
+			}));
+		}
+		started.await();
+		tradeService.shutdown();
+		for (Future<List<CompletableFuture<Void>>> result : results) {
+			for (CompletableFuture<Void> future : result.get()) {
+				try {
+					future.get(10, TimeUnit.SECONDS);
+				} catch (ExecutionException e) {
+					assertTrue(e.getCause() instanceof IllegalStateException);
+				}
+				assertTrue(future.isDone());
+			}
+		}
+		executor.shutdown();
+		assertTrue(tradeService.submitTrade(Trade.createTrade("T1", 1, "CP-1", "B1", NOW, NOW + DAY, false)).isCompletedExceptionally());
+	}
+
+	@Test
+	//Interrupted shutdown still rejects the queued tasks and keeps the interrupt flag
+	public void testInterruptedShutdownRejectsQueuedTasks() throws Exception {
+		tradeService.shutdown();
+		CountDownLatch validating = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		tradeService = new PartitionedTradeService(1, new TradeValidator(null) {
+			@Override
+			protected void validateThis(Trade trade, TradeDao dao) {
+				if (trade.getTradeId().equals("SLOW")) {
+					validating.countDown();
+					try {
+						release.await(10, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			}
+		}, clock);
+
+		CompletableFuture<Void> slow = tradeService.submitTrade(Trade.createTrade("SLOW", 1, "CP-1", "B1", NOW, NOW + DAY, false));
+		assertTrue(validating.await(10, TimeUnit.SECONDS));
+		List<CompletableFuture<Void>> queued = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			queued.add(tradeService.submitTrade(Trade.createTrade("T" + i, 1, "CP-1", "B1", NOW, NOW + DAY, false)));
+		}
+
+		Thread.currentThread().interrupt();
+		tradeService.shutdown();
+		assertTrue(Thread.interrupted());
+		for (CompletableFuture<Void> future : queued) {
+			ExecutionException executionException = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+			assertTrue(executionException.getCause() instanceof IllegalStateException);
+		}
+		release.countDown();
+		slow.get(10, TimeUnit.SECONDS);
+	}
+}
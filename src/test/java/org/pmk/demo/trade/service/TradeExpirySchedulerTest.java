@@ -0,0 +1,149 @@
+/**
+* Unit Test for adaptive TradeExpiryScheduler
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+
+package org.pmk.demo.trade.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pmk.demo.trade.dao.InMemoryTradeDao;
+import org.pmk.demo.trade.model.Trade;
+import org.pmk.demo.trade.replay.SimulatedClock;
+import org.pmk.demo.trade.validations.TradeMaturityDateValidator;
+import org.pmk.demo.trade.validations.TradeVersionValidator;
+
+public class TradeExpirySchedulerTest {
+	private static final long MIN_DELAY_MILLIS = 100;
+	private static final long MAX_DELAY_MILLIS = 1600;
+	private static final long HORIZON_MILLIS = 1000;
+	private static final long AWAIT_MILLIS = 10000;
+
+	private InMemoryTradeDao tradeDao;
+	private TradeService tradeService;
+
+	@BeforeEach
+	//Create TradeService with short expiry horizon
+	public void setUp () {
+		tradeDao = new InMemoryTradeDao();
+		tradeService = new TradeService(tradeDao, new TradeMaturityDateValidator(new TradeVersionValidator(null)));
+		tradeService.setExpiryHorizonMillis(HORIZON_MILLIS);
+	}
+
+	@AfterEach
+	//Reset before next test
+	public void tearDown () {
+		tradeService.stopTradeExpiryScheduler();
+		tradeService = null;
+		tradeDao = null;
+	}
+
+	@Test
+	//Delay is doubled up to max delay when there is nothing to expire
+	public void testBackOffWhenIdle() {
+		TradeExpiryScheduler scheduler = new TradeExpiryScheduler(tradeService, MIN_DELAY_MILLIS, MAX_DELAY_MILLIS);
+
+		assertEquals(200, scheduler.runOnce());
+		assertEquals(400, scheduler.runOnce());
+		assertEquals(800, scheduler.runOnce());
+		assertEquals(1600, scheduler.runOnce());
+		assertEquals(1600, scheduler.runOnce());
+	}
+
+	@Test
+	//Next run is planned for when the first upcoming trade enters the horizon
+	public void testWakeUpForUpcomingTrade() {
+		TradeExpiryScheduler scheduler = new TradeExpiryScheduler(tradeService, MIN_DELAY_MILLIS, MAX_DELAY_MILLIS);
+		scheduler.runOnce();
+		scheduler.runOnce();
+		scheduler.runOnce();	//Backed off to 1600
+
+		addTrade("T1", System.currentTimeMillis() + HORIZON_MILLIS + 550);
+		long delayMillis = scheduler.runOnce();
+		assertTrue(delayMillis >= 500 && delayMillis <= 600, "Delay " + delayMillis);
+	}
+
+	@Test
+	//Trade maturing inside bucket k is due at the end of the bucket, the run planned then expires it
+	public void testPlannedDelayAtEndOfBucket() {
+		SimulatedClock clock = new SimulatedClock(1792368000000L);
+		TradeService simulatedService = new TradeService(tradeDao, new TradeMaturityDateValidator(new TradeVersionValidator(null)), clock);
+		simulatedService.setExpiryHorizonMillis(HORIZON_MILLIS);
+		TradeExpiryScheduler scheduler = new TradeExpiryScheduler(simulatedService, MIN_DELAY_MILLIS, MAX_DELAY_MILLIS);
+		scheduler.runOnce();
+		scheduler.runOnce();
+		scheduler.runOnce();	//Backed off to 1600
+
+		//Start and end of bucket 3
+		long horizonTs = clock.millis() + HORIZON_MILLIS;
+		addTrade("T1", horizonTs + 3 * MIN_DELAY_MILLIS);
+		addTrade("T2", horizonTs + 4 * MIN_DELAY_MILLIS - 1);
+		long delayMillis = scheduler.runOnce();
+		assertEquals(4 * MIN_DELAY_MILLIS, delayMillis);
+		assertEquals(0, scheduler.getLastExpiredCount());
+
+		clock.setMillis(clock.millis() + delayMillis);
+		scheduler.runOnce();
+		assertEquals(2, scheduler.getLastExpiredCount());
+	}
+
+	@Test
+	//Approaching maturity cluster resets the cadence to min delay
+	public void testClusterResetsToMinDelay() {
+		TradeExpiryScheduler scheduler = new TradeExpiryScheduler(tradeService, MIN_DELAY_MILLIS, MAX_DELAY_MILLIS, 10, 50, 3);
+		scheduler.runOnce();
+		scheduler.runOnce();
+
+		long clusterTs = System.currentTimeMillis() + HORIZON_MILLIS + 350;
+		for (int i = 0; i < 3; i++) {
+			addTrade("T" + i, clusterTs);
+		}
+		assertTrue(scheduler.runOnce() <= 300);
+		assertEquals(MIN_DELAY_MILLIS, scheduler.runOnce());
+	}
+
+	@Test
+	//Due trades are expired in chunks, run stops when the time slice is used and asks for an immediate next run
+	public void testChunkedExpiry() {
+		for (int i = 0; i < 5; i++) {
+			addTrade("T" + i, System.currentTimeMillis() + HORIZON_MILLIS / 2);
+		}
+
+		TradeExpiryScheduler slicedScheduler = new TradeExpiryScheduler(tradeService, MIN_DELAY_MILLIS, MAX_DELAY_MILLIS, 2, 0, 1000);
+		assertEquals(0, slicedScheduler.runOnce());
+		assertEquals(2, slicedScheduler.getLastExpiredCount());
+
+		TradeExpiryScheduler scheduler = new TradeExpiryScheduler(tradeService, MIN_DELAY_MILLIS, MAX_DELAY_MILLIS, 2, 1000, 1000);
+		assertTrue(scheduler.runOnce() > 0);
+		assertEquals(3, scheduler.getLastExpiredCount());
+		assertEquals(3, scheduler.getTotalExpiredCount());
+		assertTrue(scheduler.getLastSweepNanos() > 0);
+		tradeService.getTrades().forEach(trade -> assertTrue(trade.isExpired()));
+	}
+
+	@Test
+	//Scheduler started from TradeService expires trades in the background
+	public void testStartScheduler() throws InterruptedException {
+		addTrade("T1", System.currentTimeMillis() + HORIZON_MILLIS / 2);
+		tradeService.startTradeExpiryScheduler(0, MIN_DELAY_MILLIS, MAX_DELAY_MILLIS);
+
+		//Poll until the first run has expired the trade, deadline is generous for a loaded machine
+		TradeExpiryScheduler scheduler = tradeService.getTradeExpiryScheduler();
+		long deadline = System.currentTimeMillis() + AWAIT_MILLIS;
+		while (scheduler.getTotalExpiredCount() == 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertTrue(scheduler.getRunCount() > 0);
+		assertEquals(1, scheduler.getTotalExpiredCount());
+	}
+
+	private void addTrade(String tradeId, long maturityTs) {
+		tradeDao.addTrade(Trade.createTrade(tradeId, 1, "CP-1", "B1", System.currentTimeMillis(), maturityTs, false));
+	}
+}
@@ -0,0 +1,140 @@
+/**
+* Unit Test for TradeService optimistic concurrency
+* @author  pmk
+* @version 1.0
+* @since   2026-10-19
+*/
+
+package org.pmk.demo.trade.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.pmk.demo.trade.dao.InMemoryTradeDao;
+import org.pmk.demo.trade.exception.ValidationException;
+import org.pmk.demo.trade.exception.VersionConflictException;
+import org.pmk.demo.trade.model.Trade;
+import org.pmk.demo.trade.validations.TradeMaturityDateValidator;
+import org.pmk.demo.trade.validations.TradeVersionValidator;
+
+public class TradeServiceTest {
+	private static final String TRADE_VERSION_LOWER = "Trade with higher version exists";
+
+	//Runs the given concurrent write once, just before the first compare and set
+	//When alwaysConflict is set every compare and set loses, as if other writers kept changing the trade
+	private static class RacingTradeDao extends InMemoryTradeDao {
+		Trade concurrentTrade;
+		boolean alwaysConflict;
+
+		@Override
+		public synchronized boolean upsertVersioned(Trade theTrade, int expectedLatestVersion) {
+			if (alwaysConflict) {
+				return false;
+			}
+			if (concurrentTrade != null) {
+				addTrade(concurrentTrade);
+				concurrentTrade = null;
+			}
+			return super.upsertVersioned(theTrade, expectedLatestVersion);
+		}
+	}
+
+	private RacingTradeDao tradeDao;
+	private TradeService tradeService;
+
+	@BeforeEach
+	public void setUp () {
+		tradeDao = new RacingTradeDao();
+		tradeService = new TradeService(tradeDao, new TradeMaturityDateValidator(new TradeVersionValidator(null)));
+	}
+
+	@AfterEach
+	//Reset before next test
+	public void tearDown () {
+		tradeDao = null;
+		tradeService = null;
+	}
+
+	@Test
+	//Higher version added between validation and write - retry is rejected by the version validator
+	public void testConcurrentHigherVersionRejected() throws ValidationException {
+		tradeService.addNewTrade(createTrade(1));
+		tradeDao.concurrentTrade = createTrade(3);
+
+		Throwable exception = assertThrows(ValidationException.class, () -> tradeService.addNewTrade(createTrade(2)));
+		assertEquals(TRADE_VERSION_LOWER, exception.getMessage());
+		assertEquals(1, tradeService.getVersionConflictCount());
+		assertEquals(3, tradeDao.getTradeByIdLatestVersion("T1").getTradeVersion());
+	}
+
+	@Test
+	//Lower version added between validation and write - retry succeeds
+	public void testConcurrentLowerVersionRetried() throws ValidationException {
+		tradeDao.concurrentTrade = createTrade(1);
+		Trade trade = createTrade(2);
+		tradeService.addNewTrade(trade);
+
+		assertEquals(1, tradeService.getVersionConflictCount());
+		assertSame(trade, tradeDao.getTradeByIdLatestVersion("T1"));
+		assertEquals(2, tradeService.getTrades().size());
+	}
+
+	@Test
+	//Retries used up by contention are reported apart from an invalid trade
+	public void testVersionConflictRetriesExhausted() {
+		tradeDao.alwaysConflict = true;
+
+		VersionConflictException exception = assertThrows(VersionConflictException.class, () -> tradeService.addNewTrade(createTrade(1)));
+		assertEquals("T1", exception.getTradeId());
+		assertEquals(TradeService.MAX_VERSION_CONFLICT_RETRIES, exception.getAttempts());
+		assertEquals(TradeService.MAX_VERSION_CONFLICT_RETRIES, tradeService.getVersionConflictCount());
+		assertTrue(tradeService.getTrades().isEmpty());
+	}
+
+	@Test
+	//Many threads adding versions of the same trade, latest version always wins
+	public void testConcurrentAddNewTrade() throws Exception {
+		int threads = 8;
+		int versionsPerThread = 200;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> results = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			int firstVersion = t;
+			results.add(executor.submit(() -> {
+				start.await();
+				for (int version = firstVersion; version < threads * versionsPerThread; version += threads) {
+					try {
+						tradeService.addNewTrade(createTrade(version));
+					} catch (ValidationException e) {
+						//Lower version than the latest one
+					}
+				}
+				return null;
+			}));
+		}
+		start.countDown();
+		for (Future<?> result : results) {
+			result.get();
+		}
+		executor.shutdown();
+
+		assertEquals(threads * versionsPerThread - 1, tradeDao.getTradeByIdLatestVersion("T1").getTradeVersion());
+	}
+
+	private static Trade createTrade(int version) {
+		return Trade.createTrade("T1", version, "CP-1", "B1", System.currentTimeMillis(), System.currentTimeMillis() + 20000, false);
+	}
+}
@@ -11,6 +11,9 @@ import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.util.Collection;
 
 import org.junit.jupiter.api.AfterEach;
@@ -44,6 +47,8 @@ public class ValidatorTest {
 				return existingTrade;
 			}
 			public Collection<Trade> findTradesLessThanMaturityDate(long maturityDateTs) {return null;}			
+			public boolean upsertVersioned(Trade theTrade, int expectedLatestVersion) {return true;}
+			public int expireTradesMaturingBefore(long maturityDateTs, int maxTrades, Collection<String> expiredTradeIds) {return 0;}
 		};		
 		
 		trade = Trade.createTrade("T1", TRADE_DAO_VERSION - 1,
@@ -77,6 +82,20 @@ public class ValidatorTest {
 		    } );		   
     }
     
+    @Test
+    //TradeMaturityDateValidator uses injected clock instead of current time
+    public void testTradeMaturityDateValidatorClock() {
+    	trade.setMaturityDateTimeStamp(1672572824030L);
+    	Clock beforeMaturity = Clock.fixed(Instant.ofEpochMilli(1672572824030L - 1), ZoneOffset.UTC);
+    	Clock afterMaturity = Clock.fixed(Instant.ofEpochMilli(1672572824030L + 1), ZoneOffset.UTC);
+	    assertDoesNotThrow( 
+				   ()->{new TradeMaturityDateValidator(null, beforeMaturity).validate(trade, tradeDao);
+		    } );
+	    assertThrows( ValidationException.class,
+				   ()->{new TradeMaturityDateValidator(null, afterMaturity).validate(trade, tradeDao);
+		    } );
+    }
+    
     @Test
     //Test TradeVersionValidator
     public void testTradeVersionValidatorLowerVersion() {